@@ -0,0 +1,148 @@
+package com.cadnative.firevisioniptv;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.request.target.CustomTarget;
+import com.bumptech.glide.request.transition.Transition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decoded browse backgrounds, kept in memory.
+ * Channels share a handful of background images, so once each has been
+ * decoded, selecting another card never decodes again. Backgrounds sit
+ * behind the rows and are dimmed, so they are decoded at most
+ * {@link #MAX_WIDTH} wide in RGB_565: about 1.8 MB each instead of 33 MB
+ * for a full 4K ARGB bitmap. Main thread only.
+ *
+ * Loads go through the application's Glide request manager and are never
+ * cleared, so Glide never takes a bitmap back into its pool while it is
+ * cached or on screen; evicted bitmaps are simply left to the GC.
+ */
+public final class BackgroundCache {
+    private static final String TAG = "BackgroundCache";
+    private static final int MAX_WIDTH = 1280;
+    private static final int MAX_BYTES = 8 * 1024 * 1024;
+
+    private static BackgroundCache instance;
+
+    private final Context appContext;
+    private final int width;
+    private final int height;
+    private final LruCache<String, Bitmap> bitmaps;
+    // Callbacks waiting for each URL being loaded
+    private final Map<String, List<Callback>> pending = new HashMap<>();
+
+    public interface Callback {
+        /**
+         * Called with the background, or null if it could not be loaded
+         */
+        void onBackground(@Nullable Bitmap bitmap);
+    }
+
+    private BackgroundCache(Context context) {
+        appContext = context.getApplicationContext();
+        DisplayMetrics metrics = appContext.getResources().getDisplayMetrics();
+        int displayWidth = Math.max(1, metrics.widthPixels);
+        int displayHeight = Math.max(1, metrics.heightPixels);
+        width = Math.min(displayWidth, MAX_WIDTH);
+        height = Math.max(1, Math.round((float) displayHeight * width / displayWidth));
+        bitmaps = new LruCache<String, Bitmap>(MAX_BYTES) {
+            @Override
+            protected int sizeOf(String url, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    public static synchronized BackgroundCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new BackgroundCache(context);
+        }
+        return instance;
+    }
+
+    /**
+     * The background if it is already decoded
+     */
+    @Nullable
+    public Bitmap getCached(String url) {
+        return url != null ? bitmaps.get(url) : null;
+    }
+
+    /**
+     * Deliver a background, from memory if possible. A load already running for
+     * the same URL is shared rather than started again.
+     */
+    public void load(String url, Callback callback) {
+        Bitmap cached = getCached(url);
+        if (cached != null || url == null) {
+            callback.onBackground(cached);
+            return;
+        }
+        List<Callback> waiting = pending.get(url);
+        if (waiting != null) {
+            waiting.add(callback);
+            return;
+        }
+        waiting = new ArrayList<>();
+        waiting.add(callback);
+        pending.put(url, waiting);
+
+        Glide.with(appContext)
+                .asBitmap()
+                .load(url)
+                .format(DecodeFormat.PREFER_RGB_565)
+                .centerCrop()
+                .override(width, height)
+                .into(new CustomTarget<Bitmap>(width, height) {
+                    @Override
+                    public void onResourceReady(@NonNull Bitmap bitmap,
+                                                @Nullable Transition<? super Bitmap> transition) {
+                        bitmaps.put(url, bitmap);
+                        finish(url, bitmap);
+                    }
+
+                    @Override
+                    public void onLoadFailed(@Nullable Drawable errorDrawable) {
+                        Log.w(TAG, "Failed to load background " + url);
+                        finish(url, null);
+                    }
+
+                    @Override
+                    public void onLoadCleared(@Nullable Drawable placeholder) {
+                    }
+                });
+    }
+
+    /**
+     * Decode backgrounds ahead of the first selection that needs them
+     */
+    public void prefetch(List<String> urls) {
+        for (String url : urls) {
+            load(url, bitmap -> { });
+        }
+    }
+
+    private void finish(String url, @Nullable Bitmap bitmap) {
+        List<Callback> waiting = pending.remove(url);
+        if (waiting != null) {
+            for (Callback callback : waiting) {
+                callback.onBackground(bitmap);
+            }
+        }
+    }
+}
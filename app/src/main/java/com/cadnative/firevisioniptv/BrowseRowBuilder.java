@@ -0,0 +1,387 @@
+package com.cadnative.firevisioniptv;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.leanback.widget.HeaderItem;
+import androidx.leanback.widget.ListRow;
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds the browse rows of a channel list on a background thread.
+ * Filtering, grouping, chunking and adapter construction all happen there,
+ * and the result is handed to the main thread as a finished snapshot, so
+ * attaching it is all the main thread does. Submitting a newer list
+ * supersedes an older one still being built; only the latest is delivered.
+ *
+ * When a list replaces one already on screen, the new rows are diffed
+ * against the old ones here too, per row and per card. Rows that still
+ * exist keep their ListRow and adapter, and the main thread only dispatches
+ * the differences, so view holders, scroll position and focus survive and
+ * only changed cards are bound again.
+ *
+ * Groups are shown either chunked into rows of a few cards, or as one row
+ * each. A single row reads its cards lazily from the channel store by
+ * position, so a group of any size costs one row, one adapter and only the
+ * cards on screen.
+ */
+public final class BrowseRowBuilder {
+    private static final String TAG = "BrowseRowBuilder";
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    /**
+     * Receives finished snapshots on the main thread
+     */
+    public interface Callback {
+        void onRowsBuilt(Snapshot snapshot);
+    }
+
+    /**
+     * Rows for one channel list. Rows carried over from the snapshot it was diffed
+     * against are shared with it, and {@link #applyTo} brings their cards up to date.
+     */
+    public static final class Snapshot {
+        public final List<Movie> source;
+        public final List<ListRow> rows;
+        public final long buildMs;
+        private final List<RowModel> models;
+        // Changes from the snapshot on screen; null when built from scratch
+        private final DiffUtil.DiffResult rowDiff;
+        private final List<CardUpdate> cardUpdates;
+
+        Snapshot(List<Movie> source, List<ListRow> rows, long buildMs, List<RowModel> models,
+                 DiffUtil.DiffResult rowDiff, List<CardUpdate> cardUpdates) {
+            this.source = source;
+            this.rows = Collections.unmodifiableList(rows);
+            this.buildMs = buildMs;
+            this.models = models;
+            this.rowDiff = rowDiff;
+            this.cardUpdates = cardUpdates;
+        }
+
+        /**
+         * Whether this can be applied to the rows adapter showing the snapshot it was diffed against
+         */
+        public boolean isIncremental() {
+            return rowDiff != null;
+        }
+
+        /**
+         * Turn the rows adapter showing the previous snapshot into this one. Main thread only.
+         */
+        public void applyTo(DiffObjectAdapter rowsAdapter) {
+            for (CardUpdate update : cardUpdates) {
+                update.adapter.apply(update.cards, update.diff);
+            }
+            rowsAdapter.apply(rows, rowDiff);
+        }
+    }
+
+    /**
+     * What one row shows
+     */
+    private static final class RowModel {
+        final String key;       // group and chunk, which identify a row across lists
+        final String title;
+        final List<Movie> cards;
+
+        RowModel(String key, String title, List<Movie> cards) {
+            this.key = key;
+            this.title = title;
+            this.cards = cards;
+        }
+    }
+
+    /**
+     * New cards for an existing row's adapter
+     */
+    private static final class CardUpdate {
+        final DiffObjectAdapter adapter;
+        final List<Movie> cards;
+        final DiffUtil.DiffResult diff;
+
+        CardUpdate(DiffObjectAdapter adapter, List<Movie> cards, DiffUtil.DiffResult diff) {
+            this.adapter = adapter;
+            this.cards = cards;
+            this.diff = diff;
+        }
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final AtomicLong generation = new AtomicLong();
+    private final FavoritesManager favorites;   // null unless showing favorites only
+    private final String filterCategory;
+    private final String filterType;
+    private final int maxColumns;
+    private final boolean oneRowPerGroup;
+
+    /**
+     * @param favorites      show only these favorites, or null for every channel
+     * @param filterCategory group or language to show, or null for all
+     * @param filterType     "category" or "language", saying what filterCategory names
+     * @param maxColumns     cards per row when chunking; larger groups continue on further rows
+     * @param oneRowPerGroup show each group as a single row instead of chunking it
+     */
+    public BrowseRowBuilder(FavoritesManager favorites, String filterCategory, String filterType,
+                            int maxColumns, boolean oneRowPerGroup) {
+        this.favorites = favorites;
+        this.filterCategory = filterCategory;
+        this.filterType = filterType;
+        this.maxColumns = maxColumns;
+        this.oneRowPerGroup = oneRowPerGroup;
+    }
+
+    /**
+     * Build rows for a list in the background and deliver them unless superseded.
+     * {@code onScreen} is the snapshot currently shown, to diff against, or null.
+     */
+    public void submit(List<Movie> list, Snapshot onScreen, Callback callback) {
+        final long id = generation.incrementAndGet();
+        EXECUTOR.execute(() -> {
+            if (generation.get() != id) {
+                return;
+            }
+            long started = SystemClock.uptimeMillis();
+            List<RowModel> models = buildRows(list);
+            Snapshot snapshot = onScreen != null
+                    ? diff(list, onScreen, models, started)
+                    : fresh(list, models, started);
+            handler.post(() -> {
+                if (generation.get() == id) {
+                    callback.onRowsBuilt(snapshot);
+                } else {
+                    Log.d(TAG, "Dropped rows for a superseded list");
+                }
+            });
+        });
+    }
+
+    /**
+     * Drop anything still being built, e.g. when the screen goes away
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    private Snapshot fresh(List<Movie> list, List<RowModel> models, long started) {
+        CardPresenter cardPresenter = new CardPresenter();
+        List<ListRow> rows = new ArrayList<>(models.size());
+        for (RowModel model : models) {
+            rows.add(newRow(model.title, new DiffObjectAdapter(cardPresenter, model.cards)));
+        }
+        return new Snapshot(list, rows, SystemClock.uptimeMillis() - started, models, null, null);
+    }
+
+    /**
+     * Match rows by key and cards by channel ID against the snapshot on screen
+     */
+    private Snapshot diff(List<Movie> list, Snapshot onScreen, List<RowModel> models, long started) {
+        List<RowModel> oldModels = onScreen.models;
+        DiffUtil.DiffResult rowDiff = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldModels.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return models.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return oldModels.get(oldPosition).key.equals(models.get(newPosition).key);
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                // Cards are updated inside the row; only a new title needs a new row
+                return oldModels.get(oldPosition).title.equals(models.get(newPosition).title);
+            }
+        }, false);
+
+        CardPresenter cardPresenter = null;
+        List<ListRow> rows = new ArrayList<>(models.size());
+        List<CardUpdate> cardUpdates = new ArrayList<>();
+        int changedCards = 0;
+        for (int newPosition = 0; newPosition < models.size(); newPosition++) {
+            RowModel model = models.get(newPosition);
+            int oldPosition = rowDiff.convertNewPositionToOld(newPosition);
+            if (oldPosition == DiffUtil.DiffResult.NO_POSITION) {
+                if (cardPresenter == null) {
+                    cardPresenter = new CardPresenter();
+                }
+                rows.add(newRow(model.title, new DiffObjectAdapter(cardPresenter, model.cards)));
+                continue;
+            }
+            ListRow oldRow = onScreen.rows.get(oldPosition);
+            DiffObjectAdapter adapter = (DiffObjectAdapter) oldRow.getAdapter();
+            // Always hand over the new cards, even unchanged ones, so rows hold the current store
+            CardDiff cardDiff = new CardDiff(oldModels.get(oldPosition).cards, model.cards);
+            cardUpdates.add(new CardUpdate(adapter, model.cards, DiffUtil.calculateDiff(cardDiff, false)));
+            changedCards += cardDiff.changed;
+            boolean sameTitle = oldModels.get(oldPosition).title.equals(model.title);
+            rows.add(sameTitle ? oldRow : newRow(model.title, adapter));
+        }
+        Log.d(TAG, "Diffed " + oldModels.size() + " rows into " + models.size()
+                + " with about " + changedCards + " changed cards");
+        return new Snapshot(list, rows, SystemClock.uptimeMillis() - started, models, rowDiff, cardUpdates);
+    }
+
+    private static ListRow newRow(String title, DiffObjectAdapter adapter) {
+        return new ListRow(new HeaderItem(0, title), adapter);
+    }
+
+    /**
+     * Cards are the same channel by ID, and unchanged if they would look and play the same
+     */
+    private static final class CardDiff extends DiffUtil.Callback {
+        private final List<Movie> oldCards;
+        private final List<Movie> newCards;
+        int changed;
+
+        CardDiff(List<Movie> oldCards, List<Movie> newCards) {
+            this.oldCards = oldCards;
+            this.newCards = newCards;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldCards.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newCards.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            return Objects.equals(oldCards.get(oldPosition).getChannelId(), newCards.get(newPosition).getChannelId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            Movie before = oldCards.get(oldPosition);
+            Movie after = newCards.get(newPosition);
+            boolean same = Objects.equals(before.getTitle(), after.getTitle())
+                    && Objects.equals(before.getCardImageUrl(), after.getCardImageUrl())
+                    && Objects.equals(before.getVideoUrl(), after.getVideoUrl());
+            if (!same) {
+                changed++;
+            }
+            return same;
+        }
+    }
+
+    private List<RowModel> buildRows(List<Movie> list) {
+        ChannelStore store = ChannelStore.backing(list);
+        ChannelFacetIndex facets = ChannelFacetIndex.of(list);
+        List<RowModel> rows = new ArrayList<>();
+
+        // Positions of the channels to show; null means all of them
+        BitSet visible = null;
+        if (favorites != null) {
+            // Shared with FavoritesManager; only read here
+            visible = favorites.getFavoritePositions(store);
+        }
+
+        if (filterCategory != null && filterType != null) {
+            int[] matches = new int[0];
+            if ("category".equals(filterType)) {
+                // Filter by category (channelGroup)
+                matches = facets.getGroupPositions(filterCategory);
+            } else if ("language".equals(filterType)) {
+                // Languages can be comma-separated (e.g., "Urdu, Hindi, English"),
+                // so the index maps each individual language to its channels
+                matches = facets.getLanguagePositions(filterCategory);
+            }
+
+            BitSet filtered = new BitSet(list.size());
+            for (int position : matches) {
+                if (visible == null || visible.get(position)) {
+                    filtered.set(position);
+                }
+            }
+            visible = filtered;
+        }
+
+        if (favorites != null) {
+            // One favorites group, read straight off the favorites bitset
+            int[] positions = new int[visible.cardinality()];
+            int count = 0;
+            for (int position = visible.nextSetBit(0); position >= 0; position = visible.nextSetBit(position + 1)) {
+                positions[count++] = position;
+            }
+            addGroup(rows, store, "Favorites", positions);
+        } else {
+            // Groups come out of the index already sorted, with Uncategorized last
+            for (ChannelFacetIndex.BrowseRow row : facets.getBrowseRows()) {
+                int[] positions = row.positions;
+                if (visible != null) {
+                    positions = new int[row.positions.length];
+                    int count = 0;
+                    for (int position : row.positions) {
+                        if (visible.get(position)) {
+                            positions[count++] = position;
+                        }
+                    }
+                    positions = Arrays.copyOf(positions, count);
+                }
+                addGroup(rows, store, row.title, positions);
+            }
+        }
+        return rows;
+    }
+
+    private void addGroup(List<RowModel> rows, ChannelStore store, String group, int[] positions) {
+        if (positions.length == 0) {
+            return;
+        }
+        if (oneRowPerGroup) {
+            // Cards are made as the row scrolls to them
+            rows.add(new RowModel(group, group + " (" + positions.length + ")", store.asList(positions)));
+        } else {
+            addGroupRows(rows, group, store.asList(positions));
+        }
+    }
+
+    /**
+     * Add one group as rows of at most maxColumns cards each
+     */
+    private void addGroupRows(List<RowModel> rows, String group, List<Movie> moviesInGroup) {
+        // Calculate the number of rows needed for this group
+        int numRows = (moviesInGroup.size() + maxColumns - 1) / maxColumns;
+
+        for (int i = 0; i < numRows; i++) {
+            // Calculate start and end indices for this row
+            int startIndex = i * maxColumns;
+            int endIndex = Math.min((i + 1) * maxColumns, moviesInGroup.size());
+
+            // Create header for this row
+            String headerText = group;
+            if (numRows > 1) {
+                int firstMovieIndex = startIndex + 1;  // Adding 1 to convert from 0-based to 1-based indexing
+                int lastMovieIndex = endIndex;
+                headerText += " (" + firstMovieIndex + "-" + lastMovieIndex + ")";
+            } else {
+                headerText += " (" + moviesInGroup.size() + ")";
+            }
+
+            List<Movie> cards = Collections.unmodifiableList(new ArrayList<>(moviesInGroup.subList(startIndex, endIndex)));
+            rows.add(new RowModel(group + '\n' + i, headerText, cards));
+        }
+    }
+}
@@ -16,7 +16,6 @@ import androidx.cardview.widget.CardView;
 import androidx.core.content.ContextCompat;
 import androidx.leanback.widget.Presenter;
 
-import com.bumptech.glide.Glide;
 import com.bumptech.glide.request.RequestOptions;
 
 /**
@@ -31,12 +30,16 @@ public class CardPresenter extends Presenter {
     private static final int ANIMATION_DURATION = 200;
 
     private Drawable mDefaultCardImage;
+    private RequestOptions mLogoOptions;
 
     @Override
     public ViewHolder onCreateViewHolder(ViewGroup parent) {
         Log.d(TAG, "onCreateViewHolder");
 
         mDefaultCardImage = ContextCompat.getDrawable(parent.getContext(), R.drawable.ic_channel_placeholder);
+        if (mLogoOptions == null) {
+            mLogoOptions = ChannelLogos.cardOptions(parent.getContext());
+        }
 
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_channel_card, parent, false);
@@ -64,31 +67,18 @@ public class CardPresenter extends Presenter {
             channelName.setText(movie.getTitle());
         }
 
-        // Load channel icon/logo with Glide
+        // Load channel icon/logo, decoded at the size of the logo area
         if (channelImage != null) {
-            if (movie.getCardImageUrl() != null && !movie.getCardImageUrl().isEmpty()) {
-                RequestOptions requestOptions = new RequestOptions()
-                        .fitCenter()
-                        .error(PlaceholderHelper.createTextPlaceholder(cardView.getContext(), movie.getTitle()));
-
-                Glide.with(cardView.getContext())
-                        .load(movie.getCardImageUrl())
-                        .apply(requestOptions)
-                        .into(channelImage);
-            } else {
-                // No image URL, use text placeholder directly
-                channelImage.setImageDrawable(PlaceholderHelper.createTextPlaceholder(cardView.getContext(), movie.getTitle()));
-            }
+            ChannelLogos.load(channelImage, movie, mLogoOptions);
         }
 
         // Setup favorite star
         if (favoriteStar != null) {
-            FavoritesManager favManager = FavoritesManager.getInstance(cardView.getContext());
-            String channelId = String.valueOf(movie.getId());
-            updateFavoriteStar(favoriteStar, favManager.isFavorite(channelId));
+            boolean isFavorite = FavoritesManager.getInstance(cardView.getContext()).isFavorite(movie);
+            updateFavoriteStar(favoriteStar, isFavorite);
 
             // Hide star by default, show only for favorites
-            favoriteStar.setVisibility(favManager.isFavorite(channelId) ? View.VISIBLE : View.GONE);
+            favoriteStar.setVisibility(isFavorite ? View.VISIBLE : View.GONE);
         }
 
         // Setup long-press to show options menu
@@ -105,8 +95,8 @@ public class CardPresenter extends Presenter {
 
     private void showChannelOptionsDialog(View cardView, Movie movie, ImageView favoriteStar) {
         FavoritesManager favManager = FavoritesManager.getInstance(cardView.getContext());
-        String channelId = String.valueOf(movie.getId());
-        boolean isFavorite = favManager.isFavorite(channelId);
+        String channelId = movie.getChannelId();
+        boolean isFavorite = favManager.isFavorite(movie);
 
         String[] options = {
             isFavorite ? "Remove from Favorites" : "Add to Favorites",
@@ -153,9 +143,9 @@ public class CardPresenter extends Presenter {
         View cardView = viewHolder.view;
         ImageView channelImage = cardView.findViewById(R.id.channel_image);
 
-        // Remove references to images for garbage collection
+        // Cancel a logo still loading and remove references to images for garbage collection
         if (channelImage != null) {
-            channelImage.setImageDrawable(null);
+            ChannelLogos.clear(channelImage);
         }
 
         // Remove focus listener
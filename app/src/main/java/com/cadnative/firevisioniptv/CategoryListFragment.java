@@ -22,8 +22,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import com.cadnative.firevisioniptv.api.ApiClient;
-
 /**
  * Fragment to display content categories (Sports, News, Movies, etc.)
  */
@@ -38,7 +36,6 @@ public class CategoryListFragment extends Fragment {
     
     private CategoryCardAdapter adapter;
     private List<CategoryItem> categoryItems = new ArrayList<>();
-    private List<Channel> allChannels = new ArrayList<>();
     
     @Nullable
     @Override
@@ -67,18 +64,23 @@ public class CategoryListFragment extends Fragment {
     }
     
     private void loadCategories() {
+        // Reuse the facet index built when the channel list was loaded
+        ChannelFacetIndex facets = MovieList.getFacets();
+        if (facets != null) {
+            processCategories(facets);
+            return;
+        }
+
         loadingProgress.setVisibility(View.VISIBLE);
         categoryGrid.setVisibility(View.GONE);
         emptyText.setVisibility(View.GONE);
         
-        ApiClient.fetchChannelList(getContext(), new ApiClient.ChannelListCallback() {
+        MovieList.loadMoviesFromServer(getContext(), getContext().getAssets(), new MovieList.MovieListCallback() {
             @Override
-            public void onSuccess(List<Channel> channels) {
-                allChannels.clear();
-                allChannels.addAll(channels);
-                
+            public void onSuccess(List<Movie> movies) {
+                ChannelFacetIndex loaded = ChannelFacetIndex.of(movies);
                 if (getActivity() != null) {
-                    getActivity().runOnUiThread(() -> processCategories());
+                    getActivity().runOnUiThread(() -> processCategories(loaded));
                 }
             }
             
@@ -92,17 +94,8 @@ public class CategoryListFragment extends Fragment {
         });
     }
     
-    private void processCategories() {
-        // Group channels by category and count them
-        Map<String, Integer> categoryCount = new HashMap<>();
-        
-        for (Channel channel : allChannels) {
-            String category = channel.getChannelGroup();
-            if (category == null || category.isEmpty()) {
-                category = "General";
-            }
-            categoryCount.put(category, categoryCount.getOrDefault(category, 0) + 1);
-        }
+    private void processCategories(ChannelFacetIndex facets) {
+        Map<String, Integer> categoryCount = facets.getGroupCounts();
         
         // Create CategoryItem objects
         categoryItems.clear();
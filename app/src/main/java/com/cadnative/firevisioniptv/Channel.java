@@ -95,15 +95,16 @@ public class Channel implements Parcelable {
     }
 
     public Channel(Parcel in) {
-        String[] data = new String[7];
+        String[] data = new String[8];
         in.readStringArray(data);
-        this.channelName = data[0];
-        this.channelUrl = data[1];
-        this.channelImg = data[2];
-        this.channelGroup = data[3];
-        this.channelLanguage = data[4];
-        this.channelDrmKey = data[5];
-        this.channelDrmType = data[6];
+        this.channelId = data[0];
+        this.channelName = data[1];
+        this.channelUrl = data[2];
+        this.channelImg = data[3];
+        this.channelGroup = data[4];
+        this.channelLanguage = data[5];
+        this.channelDrmKey = data[6];
+        this.channelDrmType = data[7];
     }
 
     @Override
@@ -113,7 +114,7 @@ public class Channel implements Parcelable {
 
     @Override
     public void writeToParcel(Parcel parcel, int i) {
-        parcel.writeStringArray(new String[]{this.channelName, this.channelUrl, this.channelImg,
+        parcel.writeStringArray(new String[]{this.channelId, this.channelName, this.channelUrl, this.channelImg,
                 this.channelGroup, this.channelLanguage, this.channelDrmKey, this.channelDrmType});
     }
 
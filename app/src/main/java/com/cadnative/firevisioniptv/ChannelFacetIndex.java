@@ -0,0 +1,241 @@
+package com.cadnative.firevisioniptv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Facets of a channel list, built once when the list is loaded.
+ * Maps each group and each individual language to the positions of its
+ * channels in the list, with the counts precomputed, so browse rows, category
+ * and language screens and their filters are lookups instead of full passes.
+ * Position arrays are shared and must not be modified.
+ */
+public final class ChannelFacetIndex {
+    public static final String UNCATEGORIZED = "Uncategorized";
+    private static final String DEFAULT_GROUP = "General";
+    private static final int[] NONE = new int[0];
+
+    private static ChannelFacetIndex latest;
+
+    private final List<Movie> movies;
+    private final Map<String, int[]> groups;
+    private final Map<String, int[]> languages;
+    private final Map<String, Integer> groupCounts;
+    private final Map<String, Integer> languageCounts;
+    private final List<BrowseRow> browseRows;
+
+    /**
+     * Channels shown together as one group on the browse screen
+     */
+    public static final class BrowseRow {
+        public final String title;
+        public final int[] positions;
+
+        BrowseRow(String title, int[] positions) {
+            this.title = title;
+            this.positions = positions;
+        }
+    }
+
+    /**
+     * Get the index for a channel list, building it only if the list changed
+     */
+    public static synchronized ChannelFacetIndex of(List<Movie> movies) {
+        if (latest == null || latest.movies != movies) {
+            latest = new ChannelFacetIndex(movies);
+        }
+        return latest;
+    }
+
+    private ChannelFacetIndex(List<Movie> movies) {
+        this.movies = movies;
+        ChannelStore store = ChannelStore.backing(movies);
+        int size = store.size();
+        int groupCount = store.getGroupCount();
+
+        // Work on the store's group and language ordinals: only the few distinct values
+        // are looked at as strings, and channels are bucketed with a counting pass.
+        // Slot 0 of each keysByOrdinal table is for channels with no value.
+        Map<String, Integer> groupKeys = new LinkedHashMap<>();
+        int[][] groupKeysByOrdinal = new int[groupCount + 1][];
+        groupKeysByOrdinal[0] = new int[]{keyOf(groupKeys, DEFAULT_GROUP)};
+        for (int ordinal = 0; ordinal < groupCount; ordinal++) {
+            String group = store.getGroupName(ordinal);
+            groupKeysByOrdinal[ordinal + 1] = new int[]{keyOf(groupKeys, group.isEmpty() ? DEFAULT_GROUP : group)};
+        }
+        groups = toMap(groupKeys, positionsByKey(size, store::getGroupOrdinal, groupKeysByOrdinal, groupKeys.size()));
+
+        // Browse rows: each group is a run of the store's group order, which is already
+        // alphabetical; uncategorized channels of any kind form one final row in list order
+        int[] groupOrder = store.getGroupOrder();
+        int[][] uncategorizedKeys = new int[groupCount + 1][];
+        uncategorizedKeys[0] = new int[]{0};
+        for (int ordinal = 0; ordinal < groupCount; ordinal++) {
+            uncategorizedKeys[ordinal + 1] = isUncategorized(store.getGroupName(ordinal)) ? new int[]{0} : NONE;
+        }
+        List<BrowseRow> rows = new ArrayList<>();
+        for (int start = 0; start < size; ) {
+            int ordinal = store.getGroupOrdinal(groupOrder[start]);
+            int end = start + 1;
+            while (end < size && store.getGroupOrdinal(groupOrder[end]) == ordinal) {
+                end++;
+            }
+            if (uncategorizedKeys[ordinal + 1].length == 0) {
+                rows.add(new BrowseRow(store.getGroupName(ordinal), Arrays.copyOfRange(groupOrder, start, end)));
+            }
+            start = end;
+        }
+        // Uncategorized, General and Other always go last
+        int[] uncategorized = positionsByKey(size, store::getGroupOrdinal, uncategorizedKeys, 1)[0];
+        if (uncategorized.length > 0) {
+            rows.add(new BrowseRow(UNCATEGORIZED, uncategorized));
+        }
+        browseRows = Collections.unmodifiableList(rows);
+
+        // Languages can be comma-separated, e.g. "Urdu, Hindi, English"; each distinct value is split once
+        int languageCount = store.getLanguageCount();
+        Map<String, Integer> languageKeys = new LinkedHashMap<>();
+        int[][] languageKeysByOrdinal = new int[languageCount + 1][];
+        languageKeysByOrdinal[0] = NONE;
+        for (int ordinal = 0; ordinal < languageCount; ordinal++) {
+            languageKeysByOrdinal[ordinal + 1] = splitLanguages(languageKeys, store.getLanguageName(ordinal));
+        }
+        languages = toMap(languageKeys,
+                positionsByKey(size, store::getLanguageOrdinal, languageKeysByOrdinal, languageKeys.size()));
+
+        groupCounts = counts(groups);
+        languageCounts = counts(languages);
+    }
+
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    /**
+     * Channel count per group; channels without a group count as "General"
+     */
+    public Map<String, Integer> getGroupCounts() {
+        return groupCounts;
+    }
+
+    /**
+     * Channel count per individual language
+     */
+    public Map<String, Integer> getLanguageCounts() {
+        return languageCounts;
+    }
+
+    public int[] getGroupPositions(String group) {
+        int[] positions = groups.get(group);
+        return positions != null ? positions : NONE;
+    }
+
+    /**
+     * Positions of channels offering exactly this language, not merely containing its name
+     */
+    public int[] getLanguagePositions(String language) {
+        int[] positions = languages.get(language);
+        return positions != null ? positions : NONE;
+    }
+
+    /**
+     * Groups in browse order: alphabetical, with uncategorized channels in a final row
+     */
+    public List<BrowseRow> getBrowseRows() {
+        return browseRows;
+    }
+
+    private static boolean isUncategorized(String group) {
+        return group == null || group.isEmpty()
+                || group.equalsIgnoreCase("Uncategorized")
+                || group.equalsIgnoreCase("General")
+                || group.equalsIgnoreCase("Other");
+    }
+
+    /**
+     * Key of a distinct value, numbered in order of first appearance
+     */
+    private static int keyOf(Map<String, Integer> keys, String value) {
+        Integer key = keys.get(value);
+        if (key == null) {
+            key = keys.size();
+            keys.put(value, key);
+        }
+        return key;
+    }
+
+    /**
+     * Keys of the individual languages in one language value, without repeats
+     */
+    private static int[] splitLanguages(Map<String, Integer> keys, String language) {
+        int[] found = new int[0];
+        for (String token : language.split(",")) {
+            String trimmed = token.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int key = keyOf(keys, trimmed);
+            boolean seen = false;
+            for (int other : found) {
+                seen |= other == key;
+            }
+            if (!seen) {
+                found = Arrays.copyOf(found, found.length + 1);
+                found[found.length - 1] = key;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Positions under each key, in list order. A channel falls under the keys of its
+     * ordinal, where keysByOrdinal[ordinal + 1] holds those of ordinal -1 (no value).
+     * Counts first, so every array is allocated once at its final size.
+     */
+    private static int[][] positionsByKey(int size, IntUnaryOperator ordinalOf, int[][] keysByOrdinal, int keyCount) {
+        int[] counts = new int[keyCount];
+        for (int position = 0; position < size; position++) {
+            for (int key : keysByOrdinal[ordinalOf.applyAsInt(position) + 1]) {
+                counts[key]++;
+            }
+        }
+        int[][] positions = new int[keyCount][];
+        for (int key = 0; key < keyCount; key++) {
+            positions[key] = new int[counts[key]];
+        }
+        Arrays.fill(counts, 0);
+        for (int position = 0; position < size; position++) {
+            for (int key : keysByOrdinal[ordinalOf.applyAsInt(position) + 1]) {
+                positions[key][counts[key]++] = position;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Keys with at least one channel and their positions
+     */
+    private static Map<String, int[]> toMap(Map<String, Integer> keys, int[][] positions) {
+        Map<String, int[]> map = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : keys.entrySet()) {
+            if (positions[entry.getValue()].length > 0) {
+                map.put(entry.getKey(), positions[entry.getValue()]);
+            }
+        }
+        return map;
+    }
+
+    private static Map<String, Integer> counts(Map<String, int[]> index) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map.Entry<String, int[]> entry : index.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().length);
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+}
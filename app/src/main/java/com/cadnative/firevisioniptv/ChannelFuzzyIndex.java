@@ -0,0 +1,630 @@
+package com.cadnative.firevisioniptv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Typo-tolerant channel lookup for when a substring search finds nothing.
+ * The distinct words of all channel names go into a BK-tree keyed by
+ * Levenshtein distance, so finding every word within k edits of a query word
+ * only measures a small part of the dictionary. The tree lives in flat arrays,
+ * breadth-first with the words packed into one char array, and distances are
+ * computed bit-parallel. Matching words expand to their channels through
+ * posting lists; a channel must match every query word.
+ *
+ * Channels are ranked by total edit distance, then a bonus when the match is
+ * the first word of the name, then popularity; the best {@code limit} are kept
+ * in a fixed-size heap, so the candidate set is never sorted. Candidates are
+ * tracked in scratch arrays indexed by channel position, reused across
+ * queries, so a query allocates nothing per candidate.
+ */
+public final class ChannelFuzzyIndex {
+    private static final int[] NONE = new int[0];
+    private static final int CANCEL_CHECK_INTERVAL = 256;
+
+    private static ChannelFuzzyIndex latest;
+
+    private final ChannelStore store;
+    // Words by node of a BK-tree, node 0 being the root; word i is wordChars[wordStart[i], wordStart[i + 1])
+    private final char[] wordChars;
+    private final int[] wordStart;
+    private final int[][] wordPositions;    // ascending channel positions per word
+    private final int[] firstWord;          // word index of each channel's first word, or -1
+    // Nodes are laid out breadth-first: the children of node i are childStart[i] to
+    // childStart[i + 1] - 1, by ascending edge
+    private final int[] childStart;
+    private final int[] edge;               // distance from the parent's word
+    private final Scratch scratch;
+
+    /**
+     * Get the index for a store, building it only if the store changed
+     */
+    public static synchronized ChannelFuzzyIndex of(ChannelStore store) {
+        if (latest == null || latest.store != store) {
+            latest = new ChannelFuzzyIndex(store);
+        }
+        return latest;
+    }
+
+    private ChannelFuzzyIndex(ChannelStore store) {
+        this.store = store;
+        int size = store.size();
+
+        Map<String, Integer> wordIds = new HashMap<>();
+        List<int[]> lists = new ArrayList<>();
+        int[] firstWordId = new int[size];
+        for (int position = 0; position < size; position++) {
+            firstWordId[position] = -1;
+            String[] nameWords = split(ChannelSearchIndex.normalize(store.getName(position)));
+            for (int w = 0; w < nameWords.length; w++) {
+                String word = nameWords[w];
+                if (isNumber(word)) {
+                    continue; // channel numbers are found by substring; typos in them mean nothing
+                }
+                Integer id = wordIds.get(word);
+                if (id == null) {
+                    id = lists.size();
+                    wordIds.put(word, id);
+                    lists.add(new int[]{0, 0, 0});
+                }
+                if (w == 0) {
+                    firstWordId[position] = id;
+                }
+                // list[0] is the count; positions follow in ascending order
+                int[] list = lists.get(id);
+                int count = list[0];
+                if (count > 0 && list[count] == position) {
+                    continue;
+                }
+                if (count + 1 == list.length) {
+                    list = Arrays.copyOf(list, list.length * 2);
+                    lists.set(id, list);
+                }
+                list[count + 1] = position;
+                list[0] = count + 1;
+            }
+        }
+
+        int wordCount = lists.size();
+        char[][] words = new char[wordCount][];
+        for (Map.Entry<String, Integer> entry : wordIds.entrySet()) {
+            words[entry.getValue()] = entry.getKey().toCharArray();
+        }
+
+        // Build the tree with linked children, in word ID order
+        int[] firstChild = new int[wordCount];
+        int[] nextSibling = new int[wordCount];
+        int[] edgeById = new int[wordCount];
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(nextSibling, -1);
+        Levenshtein distance = new Levenshtein();
+        for (int node = 1; node < wordCount; node++) {
+            distance.setPattern(words[node], 0, words[node].length);
+            int parent = 0;
+            while (true) {
+                int d = distance.to(words[parent], 0, words[parent].length, Integer.MAX_VALUE);
+                int child = firstChild[parent];
+                while (child >= 0 && edgeById[child] != d) {
+                    child = nextSibling[child];
+                }
+                if (child < 0) {
+                    edgeById[node] = d;
+                    nextSibling[node] = firstChild[parent];
+                    firstChild[parent] = node;
+                    break;
+                }
+                parent = child;
+            }
+        }
+
+        // Then lay it out breadth-first, so a search reads each node's children side by side
+        int[] idAt = new int[wordCount];
+        childStart = new int[wordCount + 1];
+        int tail = wordCount > 0 ? 1 : 0;
+        for (int node = 0; node < wordCount; node++) {
+            childStart[node] = tail;
+            for (int child = firstChild[idAt[node]]; child >= 0; child = nextSibling[child]) {
+                // Insertion sort by edge; a node has only a few children
+                int slot = tail++;
+                while (slot > childStart[node] && edgeById[idAt[slot - 1]] > edgeById[child]) {
+                    idAt[slot] = idAt[slot - 1];
+                    slot--;
+                }
+                idAt[slot] = child;
+            }
+        }
+        childStart[wordCount] = tail;
+
+        int[] nodeOfId = new int[wordCount];
+        int chars = 0;
+        for (int node = 0; node < wordCount; node++) {
+            nodeOfId[idAt[node]] = node;
+            chars += words[idAt[node]].length;
+        }
+        wordChars = new char[chars];
+        wordStart = new int[wordCount + 1];
+        wordPositions = new int[wordCount][];
+        edge = new int[wordCount];
+        for (int node = 0; node < wordCount; node++) {
+            int id = idAt[node];
+            System.arraycopy(words[id], 0, wordChars, wordStart[node], words[id].length);
+            wordStart[node + 1] = wordStart[node] + words[id].length;
+            int[] list = lists.get(id);
+            wordPositions[node] = Arrays.copyOfRange(list, 1, list[0] + 1);
+            edge[node] = edgeById[id];
+        }
+        firstWord = firstWordId;
+        for (int position = 0; position < size; position++) {
+            if (firstWord[position] >= 0) {
+                firstWord[position] = nodeOfId[firstWord[position]];
+            }
+        }
+        scratch = new Scratch(size);
+    }
+
+    /**
+     * Edits allowed for a query word: none for very short words, which match too much otherwise
+     */
+    static int maxDistance(String word) {
+        return word.length() <= 3 ? 0 : word.length() <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Best matching channel positions, best first, or null if cancelled.
+     * {@code popularity} gives a non-negative usage score for a channel position.
+     */
+    public int[] search(String query, int limit, IntToDoubleFunction popularity, BooleanSupplier cancelled) {
+        String[] queryWords = split(ChannelSearchIndex.normalize(query));
+        if (queryWords.length == 0 || edge.length == 0 || limit <= 0) {
+            return NONE;
+        }
+        // Searches run one at a time on the search thread; the lock only guards the scratch arrays
+        synchronized (scratch) {
+            return search(queryWords, limit, popularity, cancelled);
+        }
+    }
+
+    private int[] search(String[] queryWords, int limit, IntToDoubleFunction popularity, BooleanSupplier cancelled) {
+        Scratch s = scratch;
+        s.beginQuery(queryWords.length);
+        Levenshtein distance = s.distance;
+        int matchedWords = 0;
+        for (String queryWord : queryWords) {
+            if (isNumber(queryWord)) {
+                continue;
+            }
+            int k = maxDistance(queryWord);
+            int[] matches = matchWords(queryWord, k, distance, cancelled);
+            if (matches == null) {
+                return null;
+            }
+
+            // Channels still in the running carry the previous query word's stamp
+            int previous = s.generation;
+            int stamp = s.nextGeneration();
+            s.nextCount = 0;
+            // Closest words first, so each channel keeps its best distance for this query word
+            for (int d = 0; d <= k; d++) {
+                for (int m = 0; m < matches.length; m += 2) {
+                    int word = matches[m];
+                    if (matches[m + 1] != d) {
+                        continue;
+                    }
+                    for (int position : wordPositions[word]) {
+                        boolean firstWordHit = firstWord[position] == word;
+                        if (s.stamps[position] == stamp) {
+                            // Already matched closer; the first word still counts if it matches at all
+                            s.firstWordHits[position] |= firstWordHit;
+                            continue;
+                        }
+                        if (matchedWords == 0) {
+                            s.distances[position] = d;
+                            s.firstWordHits[position] = firstWordHit;
+                        } else if (s.stamps[position] == previous) {
+                            s.distances[position] += d;
+                            s.firstWordHits[position] |= firstWordHit;
+                        } else {
+                            continue; // missed an earlier query word
+                        }
+                        s.stamps[position] = stamp;
+                        s.next[s.nextCount++] = position;
+                    }
+                }
+            }
+            s.swapCandidates();
+            matchedWords++;
+            if (cancelled.getAsBoolean()) {
+                return null;
+            }
+            if (s.count == 0) {
+                return NONE;
+            }
+        }
+        if (matchedWords == 0) {
+            return NONE;
+        }
+
+        TopK best = new TopK(limit);
+        for (int i = 0; i < s.count; i++) {
+            int position = s.candidates[i];
+            // Distance first, then the first-word bonus: two ranks per distance
+            int rank = 2 * s.distances[position] + (s.firstWordHits[position] ? 0 : 1);
+            // Popularity only decides within a rank, so skip it for candidates that cannot get in
+            if (best.accepts(rank)) {
+                best.offer(position, rank, popularity.applyAsDouble(position));
+            }
+        }
+        return best.drain();
+    }
+
+    /**
+     * Dictionary words within k of the query word, as (word, distance) pairs.
+     * Walks the BK-tree, only descending into children whose edge is within k of the
+     * node's distance (triangle inequality).
+     */
+    private int[] matchWords(String queryWord, int k, Levenshtein distance, BooleanSupplier cancelled) {
+        int[] matched = new int[16];
+        int count = 0;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        int visited = 0;
+        char[] query = queryWord.toCharArray();
+        distance.setPattern(query, 0, query.length);
+        while (top > 0) {
+            if (++visited % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                return null;
+            }
+            int node = stack[--top];
+            int from = childStart[node];
+            int to = childStart[node + 1];
+            // Beyond k + the largest child edge neither this word nor any child can match,
+            // so the exact distance is not needed
+            int maxChildEdge = to > from ? edge[to - 1] : 0;
+            int d = distance.to(wordChars, wordStart[node], wordStart[node + 1], k + maxChildEdge);
+            if (d <= k) {
+                if (count + 2 > matched.length) {
+                    matched = Arrays.copyOf(matched, matched.length * 2);
+                }
+                matched[count++] = node;
+                matched[count++] = d;
+            }
+            for (int child = from; child < to && edge[child] <= d + k; child++) {
+                if (edge[child] >= d - k) {
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[top++] = child;
+                }
+            }
+        }
+        return Arrays.copyOf(matched, count);
+    }
+
+    private static String[] split(String text) {
+        List<String> parts = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                parts.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return parts.toArray(new String[0]);
+    }
+
+    private static boolean isNumber(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (!Character.isDigit(word.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Levenshtein distance from one pattern word, cut short once it must exceed a limit.
+     * Patterns up to 64 characters use the bit-parallel algorithm of Myers (as
+     * formulated by Hyyrö): one pass over the other word with a few long operations
+     * per character. Longer patterns fall back to two reusable rows.
+     */
+    private static final class Levenshtein {
+        private static final int WORD_BITS = 64;
+
+        // Bit i of a character's mask is set when the pattern has it at index i
+        private final long[] asciiMasks = new long[128];
+        private final char[] otherChars = new char[WORD_BITS];
+        private final long[] otherMasks = new long[WORD_BITS];
+        private int otherCount;
+        private char[] pattern = new char[0];
+        private int patternStart;
+        private int patternLength;
+        private int[] previous = new int[32];
+        private int[] current = new int[32];
+
+        /**
+         * Measure later distances from {@code chars[start, end)}
+         */
+        void setPattern(char[] chars, int start, int end) {
+            if (patternLength <= WORD_BITS) {
+                for (int i = 0; i < patternLength; i++) {
+                    char c = pattern[patternStart + i];
+                    if (c < asciiMasks.length) {
+                        asciiMasks[c] = 0;
+                    }
+                }
+            }
+            otherCount = 0;
+            pattern = chars;
+            patternStart = start;
+            patternLength = end - start;
+            if (patternLength > WORD_BITS) {
+                return;
+            }
+            for (int i = 0; i < patternLength; i++) {
+                char c = chars[start + i];
+                if (c < asciiMasks.length) {
+                    asciiMasks[c] |= 1L << i;
+                    continue;
+                }
+                int slot = 0;
+                while (slot < otherCount && otherChars[slot] != c) {
+                    slot++;
+                }
+                if (slot == otherCount) {
+                    otherChars[slot] = c;
+                    otherMasks[slot] = 0;
+                    otherCount++;
+                }
+                otherMasks[slot] |= 1L << i;
+            }
+        }
+
+        /**
+         * The distance from the pattern to {@code chars[start, end)} if it is at most
+         * {@code limit}, otherwise some value above the limit
+         */
+        int to(char[] chars, int start, int end, int limit) {
+            int m = patternLength;
+            int n = end - start;
+            if (Math.abs(m - n) > limit) {
+                return limit + 1;
+            }
+            if (m == 0) {
+                return n;
+            }
+            if (m > WORD_BITS) {
+                return rows(chars, start, end, limit);
+            }
+            long last = 1L << (m - 1);
+            long vp = m == WORD_BITS ? -1L : (1L << m) - 1;
+            long vn = 0;
+            int score = m;
+            for (int j = start; j < end; j++) {
+                long eq = mask(chars[j]);
+                long xv = eq | vn;
+                long xh = (((eq & vp) + vp) ^ vp) | eq;
+                long hp = vn | ~(xh | vp);
+                long hn = vp & xh;
+                if ((hp & last) != 0) {
+                    score++;
+                } else if ((hn & last) != 0) {
+                    score--;
+                }
+                // Each remaining character lowers the score by at most one
+                if (score - (end - j - 1) > limit) {
+                    return limit + 1;
+                }
+                hp = (hp << 1) | 1;
+                hn <<= 1;
+                vp = hn | ~(xv | hp);
+                vn = hp & xv;
+            }
+            return score;
+        }
+
+        private long mask(char c) {
+            if (c < asciiMasks.length) {
+                return asciiMasks[c];
+            }
+            for (int slot = 0; slot < otherCount; slot++) {
+                if (otherChars[slot] == c) {
+                    return otherMasks[slot];
+                }
+            }
+            return 0;
+        }
+
+        private int rows(char[] chars, int start, int end, int limit) {
+            int n = end - start;
+            if (previous.length <= n) {
+                previous = new int[n + 1];
+                current = new int[n + 1];
+            }
+            for (int j = 0; j <= n; j++) {
+                previous[j] = j;
+            }
+            for (int i = 1; i <= patternLength; i++) {
+                current[0] = i;
+                char ca = pattern[patternStart + i - 1];
+                int rowMin = i;
+                for (int j = 1; j <= n; j++) {
+                    int cost = ca == chars[start + j - 1] ? 0 : 1;
+                    current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                    rowMin = Math.min(rowMin, current[j]);
+                }
+                if (rowMin > limit) {
+                    return limit + 1; // distances never shrink down the rows
+                }
+                int[] swap = previous;
+                previous = current;
+                current = swap;
+            }
+            return previous[n];
+        }
+    }
+
+    /**
+     * Candidate state by channel position, reused across queries.
+     * A channel is a candidate for the current query word when its stamp is that
+     * word's generation, so nothing needs clearing between words or queries.
+     */
+    private static final class Scratch {
+        final int[] stamps;
+        final int[] distances;          // summed edit distance so far
+        final boolean[] firstWordHits;
+        final Levenshtein distance = new Levenshtein();
+        int[] candidates;               // positions matching every query word so far
+        int count;
+        int[] next;
+        int nextCount;
+        int generation;
+
+        Scratch(int size) {
+            stamps = new int[size];
+            distances = new int[size];
+            firstWordHits = new boolean[size];
+            candidates = new int[size];
+            next = new int[size];
+        }
+
+        /**
+         * Make room for one generation per query word; stamps restart only when they run out
+         */
+        void beginQuery(int queryWords) {
+            if (generation > Integer.MAX_VALUE - queryWords) {
+                Arrays.fill(stamps, 0);
+                generation = 0;
+            }
+        }
+
+        int nextGeneration() {
+            return ++generation;
+        }
+
+        void swapCandidates() {
+            int[] swap = candidates;
+            candidates = next;
+            next = swap;
+            count = nextCount;
+        }
+    }
+
+    /**
+     * Keeps the {@code limit} best candidates seen, in a max-heap of primitives.
+     * Lower rank is better; within a rank higher popularity, then list order.
+     */
+    private static final class TopK {
+        private final int[] positions;
+        private final int[] ranks;
+        private final double[] popularity;
+        private int size;
+
+        TopK(int limit) {
+            positions = new int[limit];
+            ranks = new int[limit];
+            popularity = new double[limit];
+        }
+
+        /**
+         * Whether a candidate of this rank could enter, depending on its popularity and position
+         */
+        boolean accepts(int rank) {
+            return size < positions.length || rank <= ranks[0];
+        }
+
+        void offer(int position, int rank, double used) {
+            if (size < positions.length) {
+                positions[size] = position;
+                ranks[size] = rank;
+                popularity[size] = used;
+                siftUp(size++);
+            } else if (worse(0, position, rank, used)) {
+                positions[0] = position;
+                ranks[0] = rank;
+                popularity[0] = used;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * Positions from best to worst
+         */
+        int[] drain() {
+            int[] result = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                result[i] = positions[0];
+                swap(0, size - 1);
+                size--;
+                siftDown(0);
+            }
+            return result;
+        }
+
+        /**
+         * Whether the entry at heap index i ranks below the given candidate
+         */
+        private boolean worse(int i, int position, int rank, double used) {
+            if (ranks[i] != rank) {
+                return ranks[i] > rank;
+            }
+            if (popularity[i] != used) {
+                return popularity[i] < used;
+            }
+            return positions[i] > position;
+        }
+
+        private boolean worse(int i, int j) {
+            return worse(i, positions[j], ranks[j], popularity[j]);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!worse(i, parent)) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                int worst = i;
+                if (left < size && worse(left, worst)) {
+                    worst = left;
+                }
+                if (left + 1 < size && worse(left + 1, worst)) {
+                    worst = left + 1;
+                }
+                if (worst == i) {
+                    return;
+                }
+                swap(i, worst);
+                i = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int position = positions[a];
+            positions[a] = positions[b];
+            positions[b] = position;
+            int rank = ranks[a];
+            ranks[a] = ranks[b];
+            ranks[b] = rank;
+            double used = popularity[a];
+            popularity[a] = popularity[b];
+            popularity[b] = used;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.cadnative.firevisioniptv;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.widget.ImageView;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.request.RequestOptions;
+
+/**
+ * Helper class for loading channel logos into cards.
+ * Logos are decoded at the size of the card's logo area instead of their own
+ * size, preferring RGB_565; Glide still picks ARGB_8888 for logos with
+ * transparency, or a hardware bitmap where it allows one. Preloads use the
+ * same options as the cards, so they fill the memory cache entry a card asks
+ * for when it is bound.
+ */
+final class ChannelLogos {
+
+    private ChannelLogos() {
+    }
+
+    /**
+     * Options for the logo area of a browse card (item_channel_card)
+     */
+    static RequestOptions cardOptions(Context context) {
+        return sized(context, R.dimen.channel_logo_width, R.dimen.channel_logo_height);
+    }
+
+    /**
+     * Options for the logo area of a channel overlay card (item_channel_overlay)
+     */
+    static RequestOptions overlayOptions(Context context) {
+        return sized(context, R.dimen.overlay_logo_width, R.dimen.overlay_logo_height);
+    }
+
+    private static RequestOptions sized(Context context, int widthRes, int heightRes) {
+        Resources resources = context.getResources();
+        return new RequestOptions()
+                .override(resources.getDimensionPixelSize(widthRes), resources.getDimensionPixelSize(heightRes))
+                .fitCenter()
+                .format(DecodeFormat.PREFER_RGB_565);
+    }
+
+    /**
+     * Show a channel's logo, or a placeholder with its name if it has none or it fails to load
+     */
+    static void load(ImageView view, Movie movie, RequestOptions options) {
+        Context context = view.getContext();
+        if (!hasLogo(movie)) {
+            view.setImageDrawable(PlaceholderHelper.createTextPlaceholder(context, movie.getTitle()));
+            return;
+        }
+        Glide.with(context)
+                .load(movie.getCardImageUrl())
+                .apply(options)
+                .error(PlaceholderHelper.createTextPlaceholder(context, movie.getTitle()))
+                .into(view);
+    }
+
+    /**
+     * Stop a card's logo load, if still running, and let go of its image
+     */
+    static void clear(ImageView view) {
+        Glide.with(view.getContext()).clear(view);
+        view.setImageDrawable(null);
+    }
+
+    static boolean hasLogo(Movie movie) {
+        String url = movie.getCardImageUrl();
+        return url != null && !url.isEmpty();
+    }
+}
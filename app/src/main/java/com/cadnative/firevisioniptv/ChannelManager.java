@@ -122,7 +122,7 @@ public class ChannelManager {
             // Create deep link for playback
             Intent playIntent = new Intent(Intent.ACTION_VIEW);
             playIntent.setComponent(new ComponentName(mContext, PlaybackActivity.class));
-            playIntent.putExtra("channel", channel);
+            playIntent.putExtra(PlaybackActivity.EXTRA_CHANNEL_ID, channel.getChannelId());
             String deepLinkUri = playIntent.toUri(Intent.URI_INTENT_SCHEME);
             internalData.put("playbackDeepLinkUri", deepLinkUri);
 
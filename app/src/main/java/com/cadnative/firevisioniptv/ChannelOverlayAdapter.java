@@ -15,8 +15,6 @@ import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
-import com.bumptech.glide.load.resource.bitmap.RoundedCorners;
 import com.bumptech.glide.request.RequestOptions;
 
 import java.util.List;
@@ -34,6 +32,7 @@ public class ChannelOverlayAdapter extends RecyclerView.Adapter<ChannelOverlayAd
     private List<Movie> mChannels;
     private OnItemClickListener mListener;
     private Drawable mDefaultImage;
+    private RequestOptions mLogoOptions;
 
     public interface OnItemClickListener {
         void onItemClick(Movie channel, int position);
@@ -51,6 +50,9 @@ public class ChannelOverlayAdapter extends RecyclerView.Adapter<ChannelOverlayAd
                 .inflate(R.layout.item_channel_overlay, parent, false);
 
         mDefaultImage = ContextCompat.getDrawable(parent.getContext(), R.drawable.ic_channel_placeholder);
+        if (mLogoOptions == null) {
+            mLogoOptions = ChannelLogos.overlayOptions(parent.getContext());
+        }
 
         return new ViewHolder(view);
     }
@@ -61,6 +63,14 @@ public class ChannelOverlayAdapter extends RecyclerView.Adapter<ChannelOverlayAd
         holder.bind(channel, position);
     }
 
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        // Cancel a logo still loading for a card scrolled away
+        if (holder.channelImage != null) {
+            ChannelLogos.clear(holder.channelImage);
+        }
+    }
+
     @Override
     public int getItemCount() {
         return mChannels != null ? mChannels.size() : 0;
@@ -88,21 +98,9 @@ public class ChannelOverlayAdapter extends RecyclerView.Adapter<ChannelOverlayAd
                 channelName.setText(channel.getTitle());
             }
 
-            // Load channel icon/logo with Glide - fitCenter for clear icon display with padding
+            // Load channel icon/logo - fitCenter at the size of the logo area
             if (channelImage != null) {
-                if (channel.getCardImageUrl() != null && !channel.getCardImageUrl().isEmpty()) {
-                    RequestOptions requestOptions = new RequestOptions()
-                            .fitCenter()
-                            .error(PlaceholderHelper.createTextPlaceholder(itemView.getContext(), channel.getTitle()));
-
-                    Glide.with(itemView.getContext())
-                            .load(channel.getCardImageUrl())
-                            .apply(requestOptions)
-                            .into(channelImage);
-                } else {
-                    // No image URL, use text placeholder directly
-                    channelImage.setImageDrawable(PlaceholderHelper.createTextPlaceholder(itemView.getContext(), channel.getTitle()));
-                }
+                ChannelLogos.load(channelImage, channel, mLogoOptions);
             }
 
             // Set up click listener
@@ -63,7 +63,7 @@ public class ChannelOverlayFragment extends Fragment {
         if (getArguments() != null) {
             mCurrentChannelIndex = getArguments().getInt("current_index", 0);
         }
-        mChannels = MovieList.list;
+        mChannels = ChannelRepository.getInstance().getMovies();
         mAutoHideHandler = new Handler(Looper.getMainLooper());
     }
 
@@ -0,0 +1,81 @@
+package com.cadnative.firevisioniptv;
+
+import java.util.List;
+
+/**
+ * Process-wide holder of the loaded channel list.
+ * Looks channels up by their stable server channel ID or by position in
+ * O(1), so screens pass only the ID between each other instead of serializing
+ * whole Movie objects and searching the list for the copy. Each load swaps in
+ * an immutable {@link ChannelStore}, so readers never need to lock.
+ */
+public final class ChannelRepository {
+    private static ChannelRepository instance;
+
+    private volatile ChannelStore store;
+
+    private ChannelRepository() {
+    }
+
+    public static synchronized ChannelRepository getInstance() {
+        if (instance == null) {
+            instance = new ChannelRepository();
+        }
+        return instance;
+    }
+
+    /**
+     * Replace the loaded channels
+     */
+    void setStore(ChannelStore store) {
+        this.store = store;
+    }
+
+    /**
+     * The loaded channel store, or null if nothing is loaded yet
+     */
+    public ChannelStore getStore() {
+        return store;
+    }
+
+    /**
+     * The loaded channels in display order, or null if nothing is loaded yet
+     */
+    public List<Movie> getMovies() {
+        ChannelStore current = store;
+        return current != null ? current.asList() : null;
+    }
+
+    public boolean isLoaded() {
+        return store != null;
+    }
+
+    public int size() {
+        ChannelStore current = store;
+        return current != null ? current.size() : 0;
+    }
+
+    public Movie get(int position) {
+        return store.get(position);
+    }
+
+    /**
+     * Position of a channel in the loaded list, or -1 if it is not there
+     */
+    public int indexOf(String channelId) {
+        ChannelStore current = store;
+        return current != null ? current.indexOf(channelId) : -1;
+    }
+
+    /**
+     * The channel with this server channel ID, or null if it is not loaded
+     */
+    public Movie getById(String channelId) {
+        ChannelStore current = store;
+        if (current == null) {
+            return null;
+        }
+        int position = current.indexOf(channelId);
+        return position >= 0 ? current.get(position) : null;
+    }
+}
@@ -0,0 +1,357 @@
+package com.cadnative.firevisioniptv;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Trigram inverted index over channel names, built once when a list is loaded.
+ * A query's trigrams select candidate channels by intersecting their posting
+ * lists, and only those candidates are checked for the full substring, so a
+ * keystroke no longer lowercases and scans every title. Groups are few, so
+ * they are matched against the group table directly and expanded to their
+ * channels. Search keys are computed once here and packed into char arrays,
+ * so checking a candidate neither normalizes nor allocates.
+ *
+ * A channel matches when its name or its group contains the query, ignoring
+ * case and accents. Names in Devanagari also get a Latin transliteration key
+ * (see {@link SearchKeys}), which is matched against the loosened query.
+ */
+public final class ChannelSearchIndex {
+    private static final int GRAM = 3;
+    // Channels checked between looks at the cancellation flag
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+    private static final BooleanSupplier NEVER = () -> false;
+    private static final int[] NONE = new int[0];
+
+    private static ChannelSearchIndex latest;
+
+    private final ChannelStore store;
+    private final char[] names;
+    private final int[] nameOffsets;
+    private final char[] transliterations;
+    private final int[] transliterationOffsets;  // empty range for names without one
+    private final int[] transliterated;         // positions that have a transliteration
+    private final String[] groups;          // normalized, by group ordinal
+    private final int[][] groupPositions;   // channels of each group ordinal
+    private final long[] grams;             // sorted trigram keys
+    private final int[][] postings;         // ascending positions, parallel to grams
+
+    /**
+     * Get the index for a store, building it only if the store changed
+     */
+    public static synchronized ChannelSearchIndex of(ChannelStore store) {
+        if (latest == null || latest.store != store) {
+            latest = new ChannelSearchIndex(store);
+        }
+        return latest;
+    }
+
+    /**
+     * Normalize text the same way for indexing and querying
+     */
+    static String normalize(String text) {
+        return SearchKeys.fold(text);
+    }
+
+    private ChannelSearchIndex(ChannelStore store) {
+        this.store = store;
+        int size = store.size();
+
+        StringBuilder text = new StringBuilder(size * 16);
+        StringBuilder latin = new StringBuilder();
+        nameOffsets = new int[size + 1];
+        transliterationOffsets = new int[size + 1];
+        int[] withLatin = new int[16];
+        int latinCount = 0;
+        Map<Long, int[]> lists = new HashMap<>();
+        for (int position = 0; position < size; position++) {
+            String name = normalize(store.getName(position));
+            text.append(name);
+            nameOffsets[position + 1] = text.length();
+            addGrams(lists, name, position);
+
+            String transliteration = SearchKeys.transliterate(name);
+            if (transliteration != null) {
+                latin.append(transliteration);
+                addGrams(lists, transliteration, position);
+                if (latinCount == withLatin.length) {
+                    withLatin = Arrays.copyOf(withLatin, latinCount * 2);
+                }
+                withLatin[latinCount++] = position;
+            }
+            transliterationOffsets[position + 1] = latin.length();
+        }
+        names = new char[text.length()];
+        text.getChars(0, text.length(), names, 0);
+        transliterations = new char[latin.length()];
+        latin.getChars(0, latin.length(), transliterations, 0);
+        transliterated = Arrays.copyOf(withLatin, latinCount);
+
+        grams = new long[lists.size()];
+        int g = 0;
+        for (Long gram : lists.keySet()) {
+            grams[g++] = gram;
+        }
+        Arrays.sort(grams);
+        postings = new int[grams.length][];
+        for (int i = 0; i < grams.length; i++) {
+            int[] list = lists.get(grams[i]);
+            postings[i] = Arrays.copyOfRange(list, 1, list[0] + 1);
+        }
+
+        groups = new String[store.getGroupCount()];
+        int[] groupSizes = new int[groups.length];
+        for (int ordinal = 0; ordinal < groups.length; ordinal++) {
+            groups[ordinal] = normalize(store.getGroupName(ordinal));
+        }
+        for (int position = 0; position < size; position++) {
+            int ordinal = store.getGroupOrdinal(position);
+            if (ordinal >= 0) {
+                groupSizes[ordinal]++;
+            }
+        }
+        groupPositions = new int[groups.length][];
+        for (int ordinal = 0; ordinal < groups.length; ordinal++) {
+            groupPositions[ordinal] = new int[groupSizes[ordinal]];
+            groupSizes[ordinal] = 0;
+        }
+        for (int position = 0; position < size; position++) {
+            int ordinal = store.getGroupOrdinal(position);
+            if (ordinal >= 0) {
+                groupPositions[ordinal][groupSizes[ordinal]++] = position;
+            }
+        }
+    }
+
+    private static void addGrams(Map<Long, int[]> lists, String key, int position) {
+        for (int i = 0; i + GRAM <= key.length(); i++) {
+            long gram = gram(key, i);
+            int[] list = lists.get(gram);
+            if (list == null) {
+                list = new int[]{0, 0, 0, 0, 0};
+                lists.put(gram, list);
+            }
+            // list[0] is the count; positions follow, ascending because we add in order
+            int count = list[0];
+            if (count > 0 && list[count] == position) {
+                continue; // gram seen earlier for this channel; positions must not repeat
+            }
+            if (count + 1 == list.length) {
+                list = Arrays.copyOf(list, list.length * 2);
+                lists.put(gram, list);
+            }
+            list[count + 1] = position;
+            list[0] = count + 1;
+        }
+    }
+
+    public ChannelStore getStore() {
+        return store;
+    }
+
+    /**
+     * Positions of all channels whose name or group contains the query, ascending
+     */
+    public int[] search(String query) {
+        return search(normalize(query), null, NEVER);
+    }
+
+    /**
+     * Search, checking only {@code within} (ascending positions) when it is known
+     * to contain every match, e.g. the results of a shorter prefix of the query.
+     * Returns null as soon as {@code cancelled} reports true.
+     */
+    int[] search(String query, int[] within, BooleanSupplier cancelled) {
+        if (query.isEmpty()) {
+            return NONE;
+        }
+        BitSet matchingGroups = matchingGroups(query);
+        // Only worth looking for in transliterations if there are any
+        String loose = transliterated.length > 0 ? SearchKeys.loosen(query) : null;
+
+        BitSet results = new BitSet(store.size());
+        if (within != null) {
+            for (int i = 0; i < within.length; i++) {
+                if (i % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                    return null;
+                }
+                if (matches(within[i], query, loose, matchingGroups)) {
+                    results.set(within[i]);
+                }
+            }
+            return toArray(results);
+        }
+
+        // Channels in a matching group match whatever their name
+        for (int ordinal = matchingGroups.nextSetBit(0); ordinal >= 0; ordinal = matchingGroups.nextSetBit(ordinal + 1)) {
+            for (int position : groupPositions[ordinal]) {
+                results.set(position);
+            }
+        }
+
+        if (query.length() < GRAM) {
+            // Too short for a trigram; check every name, still without allocating
+            for (int position = 0; position < store.size(); position++) {
+                if (position % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                    return null;
+                }
+                if (nameContains(position, query, loose)) {
+                    results.set(position);
+                }
+            }
+            return toArray(results);
+        }
+
+        int[] candidates = nameCandidates(query);
+        for (int i = 0; i < candidates.length; i++) {
+            if (i % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                return null;
+            }
+            int position = candidates[i];
+            if (!results.get(position) && contains(names, nameOffsets, position, query)) {
+                results.set(position);
+            }
+        }
+        if (loose != null) {
+            // Loosening can shorten the query below a trigram ("zee" is "ji"); then check
+            // every transliteration, which only names in Devanagari have
+            candidates = loose.length() < GRAM ? transliterated : nameCandidates(loose);
+            for (int i = 0; i < candidates.length; i++) {
+                if (i % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                    return null;
+                }
+                int position = candidates[i];
+                if (!results.get(position)
+                        && contains(transliterations, transliterationOffsets, position, loose)) {
+                    results.set(position);
+                }
+            }
+        }
+        return toArray(results);
+    }
+
+    /**
+     * Intersection of the posting lists of every trigram in the query, smallest first
+     */
+    private int[] nameCandidates(String query) {
+        int count = query.length() - GRAM + 1;
+        int[][] lists = new int[count][];
+        for (int i = 0; i < count; i++) {
+            int slot = Arrays.binarySearch(grams, gram(query, i));
+            if (slot < 0) {
+                return NONE; // a trigram no name contains
+            }
+            lists[i] = postings[slot];
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+
+        int[] candidates = lists[0];
+        for (int i = 1; i < lists.length && candidates.length > 0; i++) {
+            candidates = intersect(candidates, lists[i]);
+        }
+        return candidates;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private BitSet matchingGroups(String query) {
+        BitSet matching = new BitSet(groups.length);
+        for (int ordinal = 0; ordinal < groups.length; ordinal++) {
+            if (groups[ordinal].contains(query)) {
+                matching.set(ordinal);
+            }
+        }
+        return matching;
+    }
+
+    private boolean matches(int position, String query, String loose, BitSet matchingGroups) {
+        int ordinal = store.getGroupOrdinal(position);
+        return (ordinal >= 0 && matchingGroups.get(ordinal)) || nameContains(position, query, loose);
+    }
+
+    private boolean nameContains(int position, String query, String loose) {
+        return contains(names, nameOffsets, position, query)
+                || (loose != null && contains(transliterations, transliterationOffsets, position, loose));
+    }
+
+    /**
+     * Whether the key of a position, packed in {@code keys}, contains the query
+     */
+    private static boolean contains(char[] keys, int[] offsets, int position, String query) {
+        int start = offsets[position];
+        int last = offsets[position + 1] - query.length();
+        outer:
+        for (int i = start; i <= last; i++) {
+            for (int k = 0; k < query.length(); k++) {
+                if (keys[i + k] != query.charAt(k)) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static long gram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    private static int[] toArray(BitSet bits) {
+        int[] array = new int[bits.cardinality()];
+        int n = 0;
+        for (int position = bits.nextSetBit(0); position >= 0; position = bits.nextSetBit(position + 1)) {
+            array[n++] = position;
+        }
+        return array;
+    }
+
+    /**
+     * Search state of one search screen: when the query only grows, each search narrows
+     * the previous results instead of querying the whole index again. Not thread-safe.
+     */
+    public static final class Session {
+        private ChannelSearchIndex index;
+        private String lastQuery;
+        private int[] lastResults;
+
+        /**
+         * Positions of matching channels in the index's store, ascending,
+         * or null if the search was cancelled before it finished
+         */
+        public int[] search(ChannelSearchIndex index, String query, BooleanSupplier cancelled) {
+            String normalized = normalize(query);
+            int[] within = null;
+            // Anything containing "news" also contains "new", so the old results bound the new ones
+            if (index == this.index && lastQuery != null && !lastQuery.isEmpty()
+                    && normalized.contains(lastQuery)) {
+                within = lastResults;
+            }
+            int[] results = index.search(normalized, within, cancelled);
+            if (results == null) {
+                return null; // cancelled; keep the last complete results to narrow from
+            }
+            this.index = index;
+            lastQuery = normalized;
+            lastResults = results;
+            return results;
+        }
+    }
+}
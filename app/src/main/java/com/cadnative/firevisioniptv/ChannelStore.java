@@ -0,0 +1,659 @@
+package com.cadnative.firevisioniptv;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Column-oriented, immutable storage for a loaded channel list.
+ * Instead of a Channel and a Movie holding eight or more String objects per
+ * channel, each field is a column: IDs and names live in shared char arenas,
+ * group and language are ordinals into interned tables, and URLs are split
+ * into an interned prefix (scheme, host and directory, which repeat across
+ * thousands of channels) plus a suffix in an arena. {@link Movie} instances are
+ * small views onto a row and are created on demand.
+ *
+ * Also keeps an open-addressing hash of channel IDs and precomputed sort
+ * permutations by name and by group, so none of these need a pass over the
+ * list at lookup time. Both permutations are built with primitive sorts: names
+ * are compared in place in their arena, and groups are ranked once per ordinal
+ * and then placed with a counting pass.
+ */
+public final class ChannelStore {
+    private static final int NONE = -1;
+
+    private final int size;
+    private final StringArena ids;
+    private final StringArena names;
+    private final StringArena urlSuffixes;
+    private final StringArena imageSuffixes;
+    private final int[] urlPrefixes;
+    private final int[] imagePrefixes;
+    private final String[] prefixTable;
+    private final int[] groups;
+    private final String[] groupTable;
+    private final int[] languages;
+    private final String[] languageTable;
+    private final int[] backgrounds;
+    private final String[] backgroundTable;
+    private final long[] movieIds;
+    private final int[] idHash;
+    private final int[] nameOrder;
+    private final int[] nameRank;   // inverse of nameOrder
+    private final int[] groupOrder;
+    private final List<Movie> movies = new MovieView();
+
+    private ChannelStore(Builder builder) {
+        size = builder.size;
+        ids = builder.ids.build();
+        names = builder.names.build();
+        urlSuffixes = builder.urlSuffixes.build();
+        imageSuffixes = builder.imageSuffixes.build();
+        urlPrefixes = Arrays.copyOf(builder.urlPrefixes, size);
+        imagePrefixes = Arrays.copyOf(builder.imagePrefixes, size);
+        prefixTable = builder.prefixTable.toArray();
+        groups = Arrays.copyOf(builder.groups, size);
+        groupTable = builder.groupTable.toArray();
+        languages = Arrays.copyOf(builder.languages, size);
+        languageTable = builder.languageTable.toArray();
+        backgrounds = Arrays.copyOf(builder.backgrounds, size);
+        backgroundTable = builder.backgroundTable.toArray();
+        movieIds = Arrays.copyOf(builder.movieIds, size);
+        idHash = buildIdHash();
+        nameOrder = buildNameOrder();
+        nameRank = new int[size];
+        for (int rank = 0; rank < size; rank++) {
+            nameRank[nameOrder[rank]] = rank;
+        }
+        groupOrder = buildGroupOrder();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The channels as a list of Movie views; the same list instance for the life of the store
+     */
+    public List<Movie> asList() {
+        return movies;
+    }
+
+    /**
+     * Some channels as a list of Movie views, created as they are read;
+     * {@code positions} must not be modified afterwards
+     */
+    public List<Movie> asList(int[] positions) {
+        return new PositionView(positions);
+    }
+
+    /**
+     * The store behind a list returned by {@link #asList()}
+     */
+    public static ChannelStore backing(List<Movie> movies) {
+        if (!(movies instanceof MovieView)) {
+            throw new IllegalArgumentException("Not a channel store list");
+        }
+        return ((MovieView) movies).store();
+    }
+
+    public Movie get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + ", size " + size);
+        }
+        return new Movie(this, position);
+    }
+
+    /**
+     * Position of the channel with this server channel ID, or -1 if there is none
+     */
+    public int indexOf(String channelId) {
+        if (channelId == null || size == 0) {
+            return NONE;
+        }
+        int mask = idHash.length - 1;
+        for (int slot = mix(channelId.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int entry = idHash[slot];
+            if (entry == 0) {
+                return NONE;
+            }
+            if (ids.equalsAt(entry - 1, channelId)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Positions ordered by channel name, case-insensitively, with channels without a
+     * name last; ties keep list order. Shared and must not be modified.
+     */
+    public int[] getNameOrder() {
+        return nameOrder;
+    }
+
+    /**
+     * Positions ordered by group name, case-insensitively, with channels without a
+     * group last; within a group channels keep list order, so each group is one run.
+     * Shared and must not be modified.
+     */
+    public int[] getGroupOrder() {
+        return groupOrder;
+    }
+
+    /**
+     * Sort some positions into {@link #getNameOrder()} order, in place
+     */
+    public void sortByName(int[] positions) {
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = nameRank[positions[i]];
+        }
+        Arrays.sort(positions);
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = nameOrder[positions[i]];
+        }
+    }
+
+    String getChannelId(int position) {
+        return ids.get(position);
+    }
+
+    String getName(int position) {
+        return names.get(position);
+    }
+
+    String getVideoUrl(int position) {
+        return joinUrl(urlPrefixes[position], urlSuffixes, position);
+    }
+
+    String getCardImageUrl(int position) {
+        return joinUrl(imagePrefixes[position], imageSuffixes, position);
+    }
+
+    String getGroup(int position) {
+        return entry(groupTable, groups[position]);
+    }
+
+    String getLanguage(int position) {
+        return entry(languageTable, languages[position]);
+    }
+
+    String getBackgroundImageUrl(int position) {
+        return entry(backgroundTable, backgrounds[position]);
+    }
+
+    int getGroupOrdinal(int position) {
+        return groups[position];
+    }
+
+    /**
+     * Number of distinct groups; ordinals run from 0 to this minus one
+     */
+    int getGroupCount() {
+        return groupTable.length;
+    }
+
+    String getGroupName(int ordinal) {
+        return groupTable[ordinal];
+    }
+
+    int getLanguageOrdinal(int position) {
+        return languages[position];
+    }
+
+    /**
+     * Number of distinct language values; ordinals run from 0 to this minus one
+     */
+    int getLanguageCount() {
+        return languageTable.length;
+    }
+
+    String getLanguageName(int ordinal) {
+        return languageTable[ordinal];
+    }
+
+    long getMovieId(int position) {
+        return movieIds[position];
+    }
+
+    /**
+     * Whether a row of this store holds the same channel data as a row of another store
+     */
+    boolean sameRow(int position, ChannelStore other, int otherPosition) {
+        return movieIds[position] == other.movieIds[otherPosition]
+                && ids.regionEquals(position, other.ids, otherPosition)
+                && names.regionEquals(position, other.names, otherPosition)
+                && urlSuffixes.regionEquals(position, other.urlSuffixes, otherPosition)
+                && imageSuffixes.regionEquals(position, other.imageSuffixes, otherPosition)
+                && equal(entry(prefixTable, urlPrefixes[position]),
+                        other.entry(other.prefixTable, other.urlPrefixes[otherPosition]))
+                && equal(entry(prefixTable, imagePrefixes[position]),
+                        other.entry(other.prefixTable, other.imagePrefixes[otherPosition]))
+                && equal(getGroup(position), other.getGroup(otherPosition))
+                && equal(getLanguage(position), other.getLanguage(otherPosition))
+                && equal(getBackgroundImageUrl(position), other.getBackgroundImageUrl(otherPosition));
+    }
+
+    /**
+     * Approximate heap retained by this store, in bytes
+     */
+    public long estimateHeapBytes() {
+        long bytes = ids.heapBytes() + names.heapBytes()
+                + urlSuffixes.heapBytes() + imageSuffixes.heapBytes();
+        bytes += intArrayBytes(size) * 5 + 16 + 8L * size + intArrayBytes(idHash.length);
+        bytes += intArrayBytes(nameOrder.length) + intArrayBytes(nameRank.length) + intArrayBytes(groupOrder.length);
+        bytes += tableBytes(prefixTable) + tableBytes(groupTable)
+                + tableBytes(languageTable) + tableBytes(backgroundTable);
+        return bytes;
+    }
+
+    /**
+     * Approximate heap the same channels take as separate Channel and Movie objects,
+     * each with its own String fields, for comparison with {@link #estimateHeapBytes()}
+     */
+    public static long estimateObjectHeapBytes(List<Channel> channels) {
+        // Object header plus one reference per field, rounded to 8 bytes
+        final long channelObject = 48;
+        final long movieObject = 56;
+        long bytes = 0;
+        for (Channel channel : channels) {
+            bytes += channelObject + movieObject + 2 * 4; // plus a slot in each list
+            bytes += stringBytes(channel.getChannelId()) + stringBytes(channel.getChannelName())
+                    + stringBytes(channel.getChannelUrl()) + stringBytes(channel.getChannelImg())
+                    + stringBytes(channel.getChannelGroup()) + stringBytes(channel.getChannelLanguage())
+                    + stringBytes(channel.getChannelDrmKey()) + stringBytes(channel.getChannelDrmType());
+        }
+        return bytes;
+    }
+
+    private String joinUrl(int prefix, StringArena suffixes, int position) {
+        if (prefix == NONE) {
+            return suffixes.get(position);
+        }
+        return prefixTable[prefix].concat(suffixes.get(position));
+    }
+
+    private String entry(String[] table, int ordinal) {
+        return ordinal == NONE ? null : table[ordinal];
+    }
+
+    private int[] buildIdHash() {
+        int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+        int[] table = new int[capacity];
+        int mask = capacity - 1;
+        for (int position = 0; position < size; position++) {
+            String id = ids.get(position);
+            if (id == null || indexIn(table, id) != NONE) {
+                continue; // first occurrence of a duplicate ID wins, as with a list scan
+            }
+            int slot = mix(id.hashCode()) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = position + 1;
+        }
+        return table;
+    }
+
+    private int indexIn(int[] table, String id) {
+        int mask = table.length - 1;
+        for (int slot = mix(id.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return NONE;
+            }
+            if (ids.equalsAt(entry - 1, id)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private int[] buildNameOrder() {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        sort(order, names::compareIgnoreCase);
+        return order;
+    }
+
+    /**
+     * Rank the few group ordinals by name, then place positions by rank in one
+     * counting pass, which keeps list order within each group
+     */
+    private int[] buildGroupOrder() {
+        int groupCount = groupTable.length;
+        int[] ordinals = new int[groupCount];
+        for (int i = 0; i < groupCount; i++) {
+            ordinals[i] = i;
+        }
+        sort(ordinals, (a, b) -> {
+            int order = groupTable[a].compareToIgnoreCase(groupTable[b]);
+            return order != 0 ? order : groupTable[a].compareTo(groupTable[b]);
+        });
+        // Rank groupCount is for channels without a group
+        int[] rankOf = new int[groupCount];
+        for (int rank = 0; rank < groupCount; rank++) {
+            rankOf[ordinals[rank]] = rank;
+        }
+        int[] starts = new int[groupCount + 2];
+        for (int position = 0; position < size; position++) {
+            starts[groupRank(rankOf, position) + 1]++;
+        }
+        for (int rank = 0; rank <= groupCount; rank++) {
+            starts[rank + 1] += starts[rank];
+        }
+        int[] order = new int[size];
+        for (int position = 0; position < size; position++) {
+            order[starts[groupRank(rankOf, position)]++] = position;
+        }
+        return order;
+    }
+
+    private int groupRank(int[] rankOf, int position) {
+        return groups[position] == NONE ? rankOf.length : rankOf[groups[position]];
+    }
+
+    /**
+     * Stable merge sort of ints by a comparator, without boxing them
+     */
+    private static void sort(int[] values, IntBinaryOperator comparator) {
+        int[] buffer = new int[values.length];
+        for (int width = 1; width < values.length; width *= 2) {
+            for (int start = 0; start < values.length - width; start += 2 * width) {
+                int middle = start + width;
+                int end = Math.min(start + 2 * width, values.length);
+                if (comparator.applyAsInt(values[middle - 1], values[middle]) <= 0) {
+                    continue; // already in order
+                }
+                System.arraycopy(values, start, buffer, start, end - start);
+                int left = start;
+                int right = middle;
+                for (int i = start; i < end; i++) {
+                    if (right >= end || (left < middle && comparator.applyAsInt(buffer[left], buffer[right]) <= 0)) {
+                        values[i] = buffer[left++];
+                    } else {
+                        values[i] = buffer[right++];
+                    }
+                }
+            }
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static long intArrayBytes(int length) {
+        return 16 + 4L * length;
+    }
+
+    private static long stringBytes(String value) {
+        // String object plus its backing array, without compact-string savings
+        return value == null ? 0 : 24 + 16 + 2L * value.length();
+    }
+
+    private static long tableBytes(String[] table) {
+        long bytes = intArrayBytes(table.length);
+        for (String value : table) {
+            bytes += stringBytes(value);
+        }
+        return bytes;
+    }
+
+    /**
+     * Read-only list of Movie views, so screens can keep working with List&lt;Movie&gt;
+     */
+    private final class MovieView extends AbstractList<Movie> implements RandomAccess {
+        @Override
+        public Movie get(int position) {
+            return ChannelStore.this.get(position);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        ChannelStore store() {
+            return ChannelStore.this;
+        }
+    }
+
+    private final class PositionView extends AbstractList<Movie> implements RandomAccess {
+        private final int[] positions;
+
+        PositionView(int[] positions) {
+            this.positions = positions;
+        }
+
+        @Override
+        public Movie get(int index) {
+            return ChannelStore.this.get(positions[index]);
+        }
+
+        @Override
+        public int size() {
+            return positions.length;
+        }
+    }
+
+    /**
+     * Strings packed back to back in one char array, with null tracked separately
+     */
+    private static final class StringArena {
+        private final char[] chars;
+        private final int[] offsets; // start of string i; offsets[count] is the end
+        private final BitSet nulls;
+
+        StringArena(char[] chars, int[] offsets, BitSet nulls) {
+            this.chars = chars;
+            this.offsets = offsets;
+            this.nulls = nulls;
+        }
+
+        String get(int index) {
+            if (nulls.get(index)) {
+                return null;
+            }
+            return new String(chars, offsets[index], offsets[index + 1] - offsets[index]);
+        }
+
+        boolean equalsAt(int index, String value) {
+            if (nulls.get(index)) {
+                return false;
+            }
+            int start = offsets[index];
+            int length = offsets[index + 1] - start;
+            if (length != value.length()) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (chars[start + i] != value.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean regionEquals(int index, StringArena other, int otherIndex) {
+            if (nulls.get(index) || other.nulls.get(otherIndex)) {
+                return nulls.get(index) == other.nulls.get(otherIndex);
+            }
+            int start = offsets[index];
+            int otherStart = other.offsets[otherIndex];
+            int length = offsets[index + 1] - start;
+            if (length != other.offsets[otherIndex + 1] - otherStart) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (chars[start + i] != other.chars[otherStart + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Compare two strings as String.compareToIgnoreCase does, with nulls last
+         */
+        int compareIgnoreCase(int index, int otherIndex) {
+            boolean missing = nulls.get(index);
+            if (missing || nulls.get(otherIndex)) {
+                return missing == nulls.get(otherIndex) ? 0 : missing ? 1 : -1;
+            }
+            int start = offsets[index];
+            int otherStart = offsets[otherIndex];
+            int length = offsets[index + 1] - start;
+            int otherLength = offsets[otherIndex + 1] - otherStart;
+            for (int i = 0; i < Math.min(length, otherLength); i++) {
+                char a = chars[start + i];
+                char b = chars[otherStart + i];
+                if (a != b) {
+                    a = Character.toLowerCase(Character.toUpperCase(a));
+                    b = Character.toLowerCase(Character.toUpperCase(b));
+                    if (a != b) {
+                        return a - b;
+                    }
+                }
+            }
+            return length - otherLength;
+        }
+
+        long heapBytes() {
+            return 16 + 2L * chars.length + intArrayBytes(offsets.length) + 32 + nulls.size() / 8;
+        }
+    }
+
+    private static final class ArenaBuilder {
+        private char[] chars = new char[1024];
+        private int length;
+        private int[] offsets = new int[64];
+        private int count;
+        private final BitSet nulls = new BitSet();
+
+        void add(String value) {
+            if (count + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            if (value == null) {
+                nulls.set(count);
+            } else {
+                if (length + value.length() > chars.length) {
+                    chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + value.length()));
+                }
+                value.getChars(0, value.length(), chars, length);
+                length += value.length();
+            }
+            offsets[++count] = length;
+        }
+
+        StringArena build() {
+            return new StringArena(Arrays.copyOf(chars, length), Arrays.copyOf(offsets, count + 1), nulls);
+        }
+    }
+
+    private static final class Interner {
+        private final Map<String, Integer> ordinals = new HashMap<>();
+
+        int intern(String value) {
+            if (value == null) {
+                return NONE;
+            }
+            Integer ordinal = ordinals.get(value);
+            if (ordinal == null) {
+                ordinal = ordinals.size();
+                ordinals.put(value, ordinal);
+            }
+            return ordinal;
+        }
+
+        String[] toArray() {
+            String[] table = new String[ordinals.size()];
+            for (Map.Entry<String, Integer> entry : ordinals.entrySet()) {
+                table[entry.getValue()] = entry.getKey();
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Accumulates channels row by row; build() freezes them into a store
+     */
+    public static final class Builder {
+        private int size;
+        private final ArenaBuilder ids = new ArenaBuilder();
+        private final ArenaBuilder names = new ArenaBuilder();
+        private final ArenaBuilder urlSuffixes = new ArenaBuilder();
+        private final ArenaBuilder imageSuffixes = new ArenaBuilder();
+        private final Interner prefixTable = new Interner();
+        private final Interner groupTable = new Interner();
+        private final Interner languageTable = new Interner();
+        private final Interner backgroundTable = new Interner();
+        private int[] urlPrefixes;
+        private int[] imagePrefixes;
+        private int[] groups;
+        private int[] languages;
+        private int[] backgrounds;
+        private long[] movieIds;
+
+        public Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 16);
+            urlPrefixes = new int[capacity];
+            imagePrefixes = new int[capacity];
+            groups = new int[capacity];
+            languages = new int[capacity];
+            backgrounds = new int[capacity];
+            movieIds = new long[capacity];
+        }
+
+        public Builder add(long movieId, String channelId, String name, String videoUrl,
+                           String cardImageUrl, String group, String language, String backgroundImageUrl) {
+            if (size == movieIds.length) {
+                int capacity = size * 2;
+                urlPrefixes = Arrays.copyOf(urlPrefixes, capacity);
+                imagePrefixes = Arrays.copyOf(imagePrefixes, capacity);
+                groups = Arrays.copyOf(groups, capacity);
+                languages = Arrays.copyOf(languages, capacity);
+                backgrounds = Arrays.copyOf(backgrounds, capacity);
+                movieIds = Arrays.copyOf(movieIds, capacity);
+            }
+
+            movieIds[size] = movieId;
+            ids.add(channelId);
+            names.add(name);
+            urlPrefixes[size] = addUrl(urlSuffixes, videoUrl);
+            imagePrefixes[size] = addUrl(imageSuffixes, cardImageUrl);
+            groups[size] = groupTable.intern(group);
+            languages[size] = languageTable.intern(language);
+            backgrounds[size] = backgroundTable.intern(backgroundImageUrl);
+            size++;
+            return this;
+        }
+
+        public ChannelStore build() {
+            return new ChannelStore(this);
+        }
+
+        /**
+         * Store everything up to the last '/' as a shared prefix and the rest in the arena
+         */
+        private int addUrl(ArenaBuilder suffixes, String url) {
+            int cut = url != null ? url.lastIndexOf('/') + 1 : 0;
+            if (cut == 0) {
+                suffixes.add(url);
+                return NONE;
+            }
+            suffixes.add(url.substring(cut));
+            return prefixTable.intern(url.substring(0, cut));
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.cadnative.firevisioniptv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * As-you-type completions from channel and group names.
+ * Every name is a term, reachable by typing the start of any of its words:
+ * "star gold" is found by "sta" and by "gol". Terms have a weight from usage,
+ * and each trie node keeps its best terms, so a lookup walks one node per
+ * typed character and copies a short list.
+ *
+ * The trie is built from the sorted keys. Nodes with few keys below them are
+ * not split further; they keep their range of the sorted keys, which a
+ * lookup going deeper than the node scans directly. Keys are offsets into
+ * one char array of folded terms, so they cost no strings of their own.
+ */
+public final class ChannelSuggestionIndex {
+    private static final int TOP = 8;
+    // Nodes with at most this many keys are leaves holding a range of keys
+    private static final int BUCKET_SIZE = 32;
+    private static final String[] NONE = new String[0];
+
+    private static ChannelSuggestionIndex latest;
+
+    private final ChannelStore store;
+    private final int[] termSources;        // channel position of a name term, or -1 - group ordinal
+    private final double[] weights;         // by term
+    private final char[] chars;             // folded terms, packed
+    private final int[] termEnds;           // end of each term in chars
+    private final int[] keys;               // sorted; where each key starts in chars
+    private final int[] keyTerms;           // term of each key
+
+    // Trie nodes; node 0 is the root
+    private char[] label;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int[] rangeStart;
+    private int[] rangeEnd;
+    private int[][] best;                   // best terms below each node, best first
+    private int nodeCount;
+
+    /**
+     * Get the index for a store, building it only if the store changed.
+     * {@code popularity} gives a non-negative usage score for a channel position
+     * and is only asked while building.
+     */
+    public static synchronized ChannelSuggestionIndex of(ChannelStore store, IntToDoubleFunction popularity) {
+        if (latest == null || latest.store != store) {
+            latest = new ChannelSuggestionIndex(store, popularity);
+        }
+        return latest;
+    }
+
+    private ChannelSuggestionIndex(ChannelStore store, IntToDoubleFunction popularity) {
+        this.store = store;
+
+        // One term per distinct name and group, weighted by the use of its channels
+        Map<String, Integer> termIds = new HashMap<>();
+        List<Integer> sourceList = new ArrayList<>();
+        double[] termWeights = new double[16];
+        double[] groupWeights = new double[store.getGroupCount()];
+        for (int position = 0; position < store.size(); position++) {
+            double used = popularity.applyAsDouble(position);
+            int term = addTerm(termIds, sourceList, store.getName(position), position);
+            if (term >= 0) {
+                if (term >= termWeights.length) {
+                    termWeights = Arrays.copyOf(termWeights, termWeights.length * 2);
+                }
+                termWeights[term] += 1 + used;
+            }
+            int group = store.getGroupOrdinal(position);
+            if (group >= 0) {
+                groupWeights[group] = Math.max(groupWeights[group], used);
+            }
+        }
+        for (int group = 0; group < groupWeights.length; group++) {
+            int term = addTerm(termIds, sourceList, store.getGroupName(group), -1 - group);
+            if (term >= 0) {
+                if (term >= termWeights.length) {
+                    termWeights = Arrays.copyOf(termWeights, termWeights.length * 2);
+                }
+                // A group suggests many channels, so it ranks as high as its most used one
+                termWeights[term] = Math.max(termWeights[term], 1 + groupWeights[group]);
+            }
+        }
+        int termCount = sourceList.size();
+        termSources = new int[termCount];
+        for (int term = 0; term < termCount; term++) {
+            termSources[term] = sourceList.get(term);
+        }
+        weights = Arrays.copyOf(termWeights, termCount);
+
+        // One key per word start of each term
+        String[] foldedTerms = new String[termCount];
+        for (Map.Entry<String, Integer> entry : termIds.entrySet()) {
+            foldedTerms[entry.getValue()] = entry.getKey();
+        }
+        StringBuilder text = new StringBuilder();
+        termEnds = new int[termCount];
+        int[] starts = new int[Math.max(16, termCount * 2)];
+        int[] owners = new int[starts.length];
+        int keyCount = 0;
+        for (int term = 0; term < termCount; term++) {
+            String folded = foldedTerms[term];
+            for (int i = 0; i < folded.length(); i++) {
+                if (isWordStart(folded, i)) {
+                    if (keyCount == starts.length) {
+                        starts = Arrays.copyOf(starts, keyCount * 2);
+                        owners = Arrays.copyOf(owners, keyCount * 2);
+                    }
+                    starts[keyCount] = text.length() + i;
+                    owners[keyCount++] = term;
+                }
+            }
+            text.append(folded);
+            termEnds[term] = text.length();
+        }
+        chars = new char[text.length()];
+        text.getChars(0, text.length(), chars, 0);
+
+        Integer[] order = new Integer[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            order[i] = i;
+        }
+        final int[] keyStarts = starts;
+        final int[] keyOwners = owners;
+        Arrays.sort(order, (a, b) -> compare(keyStarts[a], termEnds[keyOwners[a]], keyStarts[b], termEnds[keyOwners[b]]));
+        keys = new int[keyCount];
+        keyTerms = new int[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = starts[order[i]];
+            keyTerms[i] = owners[order[i]];
+        }
+
+        int capacity = Math.max(16, keys.length / BUCKET_SIZE * 4);
+        label = new char[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        rangeStart = new int[capacity];
+        rangeEnd = new int[capacity];
+        best = new int[capacity][];
+        build(newNode((char) 0, 0, keys.length), 0);
+    }
+
+    /**
+     * Term for a name, adding it with its source if new; -1 for blank names
+     */
+    private static int addTerm(Map<String, Integer> termIds, List<Integer> sourceList, String text, int source) {
+        String folded = SearchKeys.fold(text);
+        if (folded.isEmpty()) {
+            return -1;
+        }
+        Integer id = termIds.get(folded);
+        if (id == null) {
+            id = sourceList.size();
+            termIds.put(folded, id);
+            sourceList.add(source);
+        }
+        return id;
+    }
+
+    private int compare(int a, int aEnd, int b, int bEnd) {
+        while (a < aEnd && b < bEnd) {
+            if (chars[a] != chars[b]) {
+                return chars[a] - chars[b];
+            }
+            a++;
+            b++;
+        }
+        return (aEnd - a) - (bEnd - b);
+    }
+
+    private int keyLength(int key) {
+        return termEnds[keyTerms[key]] - keys[key];
+    }
+
+    private boolean keyStartsWith(int key, String prefix) {
+        if (keyLength(key) < prefix.length()) {
+            return false;
+        }
+        int at = keys[key];
+        for (int i = 0; i < prefix.length(); i++) {
+            if (chars[at + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWordStart(String text, int i) {
+        return Character.isLetterOrDigit(text.charAt(i))
+                && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)));
+    }
+
+    private int newNode(char c, int start, int end) {
+        if (nodeCount == label.length) {
+            int capacity = nodeCount * 2;
+            label = Arrays.copyOf(label, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            rangeStart = Arrays.copyOf(rangeStart, capacity);
+            rangeEnd = Arrays.copyOf(rangeEnd, capacity);
+            best = Arrays.copyOf(best, capacity);
+        }
+        int node = nodeCount++;
+        label[node] = c;
+        firstChild[node] = -1;
+        nextSibling[node] = -1;
+        rangeStart[node] = start;
+        rangeEnd[node] = end;
+        return node;
+    }
+
+    /**
+     * Give a node its best terms and, if it has many keys, a child per next character.
+     * The node's keys are sorted and share its first {@code depth} characters.
+     */
+    private void build(int node, int depth) {
+        int start = rangeStart[node];
+        int end = rangeEnd[node];
+        if (end - start <= BUCKET_SIZE) {
+            best[node] = bestTerms(start, end, null);
+            return;
+        }
+        // Keys that end here sort first and stay with the node
+        int i = start;
+        while (i < end && keyLength(i) == depth) {
+            i++;
+        }
+        int[] top = bestTerms(start, i, null);
+        int previous = -1;
+        while (i < end) {
+            char c = chars[keys[i] + depth];
+            int j = i + 1;
+            while (j < end && chars[keys[j] + depth] == c) {
+                j++;
+            }
+            int child = newNode(c, i, j);
+            if (previous < 0) {
+                firstChild[node] = child;
+            } else {
+                nextSibling[previous] = child;
+            }
+            previous = child;
+            build(child, depth + 1);
+            top = merge(top, best[child]);
+            i = j;
+        }
+        best[node] = top;
+    }
+
+    /**
+     * Best distinct terms of two best-first lists
+     */
+    private int[] merge(int[] a, int[] b) {
+        int[] top = new int[Math.min(TOP, a.length + b.length)];
+        int count = 0;
+        int i = 0, j = 0;
+        while (count < top.length && (i < a.length || j < b.length)) {
+            int term = j == b.length || (i < a.length && weights[a[i]] >= weights[b[j]]) ? a[i++] : b[j++];
+            boolean seen = false;
+            for (int k = 0; k < count && !seen; k++) {
+                seen = top[k] == term;
+            }
+            if (!seen) {
+                top[count++] = term;
+            }
+        }
+        return count == top.length ? top : Arrays.copyOf(top, count);
+    }
+
+    /**
+     * The best distinct terms among keys [start, end) that start with the prefix (null for all)
+     */
+    private int[] bestTerms(int start, int end, String prefix) {
+        int[] top = new int[TOP];
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (prefix != null && !keyStartsWith(i, prefix)) {
+                continue;
+            }
+            int term = keyTerms[i];
+            boolean seen = false;
+            for (int k = 0; k < count && !seen; k++) {
+                seen = top[k] == term;
+            }
+            if (seen || (count == TOP && weights[term] <= weights[top[count - 1]])) {
+                continue;
+            }
+            // Insert in order, dropping the last if full
+            int k = count < TOP ? count++ : TOP - 1;
+            while (k > 0 && weights[top[k - 1]] < weights[term]) {
+                top[k] = top[k - 1];
+                k--;
+            }
+            top[k] = term;
+        }
+        return count == TOP ? top : Arrays.copyOf(top, count);
+    }
+
+    /**
+     * Up to {@code limit} suggestions for what has been typed so far, best first
+     */
+    public String[] suggest(String prefix, int limit) {
+        String folded = SearchKeys.fold(prefix);
+        if (folded.isEmpty() || keys.length == 0) {
+            return NONE;
+        }
+        int node = 0;
+        int depth = 0;
+        while (depth < folded.length() && firstChild[node] >= 0) {
+            char c = folded.charAt(depth);
+            int child = firstChild[node];
+            while (child >= 0 && label[child] != c) {
+                child = nextSibling[child];
+            }
+            if (child < 0) {
+                return NONE;
+            }
+            node = child;
+            depth++;
+        }
+        int[] top = depth == folded.length()
+                ? best[node]
+                : bestTerms(rangeStart[node], rangeEnd[node], folded); // deeper than the trie
+        String[] suggestions = new String[Math.min(limit, top.length)];
+        for (int i = 0; i < suggestions.length; i++) {
+            int source = termSources[top[i]];
+            String text = source >= 0 ? store.getName(source) : store.getGroupName(-1 - source);
+            suggestions[i] = text.trim();
+        }
+        return suggestions;
+    }
+}
@@ -34,16 +34,13 @@ import androidx.leanback.widget.VerticalGridPresenter;
 import androidx.leanback.widget.VerticalGridView;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
 
 public class CustomSearchFragment extends Fragment {
     private static final String TAG = "CustomSearchFragment";
@@ -51,19 +48,32 @@ public class CustomSearchFragment extends Fragment {
     private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
     private static final String PREFS_NAME = "SearchPrefs";
     private static final String KEY_SEARCH_HISTORY = "search_history";
-    private static final String KEY_CHANNEL_CLICKS = "channel_clicks";
+    // Click counts of older versions; popularity now comes from UsageStats
+    private static final String LEGACY_KEY_CHANNEL_CLICKS = "channel_clicks";
+    private static final int POPULAR_CHANNEL_COUNT = 10;
+    private static final int CONTINUE_WATCHING_COUNT = 10;
     private static final int MAX_SEARCH_HISTORY = 5;
+    private static final int FUZZY_RESULT_LIMIT = 50;
+    private static final int SUGGESTION_COUNT = 6;
 
     private EditText searchInput;
     private VerticalGridView searchResults;
     private ArrayObjectAdapter resultsAdapter;
-    private List<Movie> allMovies;
+    // Only used on EXECUTOR
+    private final ChannelSearchIndex.Session searchSession = new ChannelSearchIndex.Session();
     private Handler handler;
-    private Runnable delayedSearch;
+    private SearchScheduler searchScheduler;
     private View searchHistorySection;
+    private TextView searchHistoryTitle;
     private HorizontalGridView searchHistoryChips;
     private ArrayObjectAdapter chipsAdapter;
     private SharedPreferences prefs;
+    // Resolved on the main thread, as EXECUTOR may run after the fragment is detached
+    private UsageStats usageStats;
+    // Built on EXECUTOR, read on the main thread
+    private volatile ChannelSuggestionIndex suggestionIndex;
+    // Store the suggestion index was last requested for; main thread only
+    private ChannelStore suggestionStore;
 
     @Nullable
     @Override
@@ -74,15 +84,20 @@ public class CustomSearchFragment extends Fragment {
         searchResults = view.findViewById(R.id.search_results);
         searchHistorySection = view.findViewById(R.id.search_history_section);
         searchHistoryChips = view.findViewById(R.id.search_history_chips);
+        searchHistoryTitle = view.findViewById(R.id.search_history_title);
 
         handler = new Handler(Looper.getMainLooper());
-        // Movies should be loaded from server via loadMoviesFromServer
-        allMovies = new ArrayList<>();
+        searchScheduler = new SearchScheduler(EXECUTOR, SEARCH_DELAY_MS, this::runSearch);
         prefs = requireContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        usageStats = UsageStats.getInstance(requireContext());
+        if (prefs.contains(LEGACY_KEY_CHANNEL_CLICKS)) {
+            prefs.edit().remove(LEGACY_KEY_CHANNEL_CLICKS).apply();
+        }
 
         setupSearchInput();
         setupSearchResults();
         setupSearchHistoryChips();
+        updateSuggestionIndex();
 
         // Show search history and popular channels initially
         handler.postDelayed(() -> {
@@ -90,7 +105,7 @@ public class CustomSearchFragment extends Fragment {
                 searchInput.requestFocus();
             }
             // Display search history and popular channels
-            showSearchHistoryAndPopular();
+            searchScheduler.submitNow("");
         }, 100);
 
         return view;
@@ -104,14 +119,9 @@ public class CustomSearchFragment extends Fragment {
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                // Cancel any pending search
-                if (delayedSearch != null) {
-                    handler.removeCallbacks(delayedSearch);
-                }
-
-                // Schedule new search with delay
-                delayedSearch = () -> performSearch(s.toString());
-                handler.postDelayed(delayedSearch, SEARCH_DELAY_MS);
+                // Suggestions are instant; the search is debounced and replaces any still pending or running
+                showSuggestions(s.toString());
+                searchScheduler.submit(s.toString());
             }
 
             @Override
@@ -121,10 +131,9 @@ public class CustomSearchFragment extends Fragment {
 
         searchInput.setOnEditorActionListener((v, actionId, event) -> {
             if (actionId == EditorInfo.IME_ACTION_SEARCH) {
-                if (delayedSearch != null) {
-                    handler.removeCallbacks(delayedSearch);
-                }
-                performSearch(searchInput.getText().toString());
+                String query = searchInput.getText().toString();
+                saveSearchQuery(query);
+                searchScheduler.submitNow(query);
                 return true;
             }
             return false;
@@ -148,7 +157,8 @@ public class CustomSearchFragment extends Fragment {
                         String query = (String) chipsAdapter.get(position);
                         searchInput.setText(query);
                         searchInput.setSelection(query.length());
-                        performSearch(query);
+                        saveSearchQuery(query);
+                        searchScheduler.submitNow(query);
                     }
                 });
             }
@@ -167,6 +177,67 @@ public class CustomSearchFragment extends Fragment {
         });
     }
 
+    /**
+     * Build the completion trie in the background, weighted by how much each channel is watched,
+     * if the loaded list is not the one it was built from. Covers a search opened before
+     * the list arrived and a list refreshed while searching.
+     */
+    private void updateSuggestionIndex() {
+        ChannelStore store = ChannelRepository.getInstance().getStore();
+        if (store == null || store == suggestionStore) {
+            return;
+        }
+        suggestionStore = store;
+        EXECUTOR.execute(() -> {
+            double[] popularity = usageStats.getPopularity(store);
+            suggestionIndex = ChannelSuggestionIndex.of(store, position -> popularity[position]);
+            handler.post(() -> {
+                // Complete what was typed while the index was building
+                if (getView() != null && searchInput.length() > 0) {
+                    showSuggestions(searchInput.getText().toString());
+                }
+            });
+        });
+    }
+
+    /**
+     * Show completions for the text typed so far as chips: matching past searches first,
+     * then channel and group names. Runs on the main thread and takes microseconds.
+     */
+    private void showSuggestions(String query) {
+        updateSuggestionIndex();
+        String prefix = SearchKeys.fold(query);
+        if (prefix.isEmpty() || searchHistorySection == null) {
+            return; // the empty query shows the search history instead
+        }
+        List<String> suggestions = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (String past : getSearchHistory()) {
+            String folded = SearchKeys.fold(past);
+            if (folded.startsWith(prefix) && !folded.equals(prefix) && seen.add(folded)) {
+                suggestions.add(past);
+            }
+        }
+        ChannelSuggestionIndex index = suggestionIndex;
+        if (index != null) {
+            for (String suggestion : index.suggest(query, SUGGESTION_COUNT)) {
+                String folded = SearchKeys.fold(suggestion);
+                if (suggestions.size() < SUGGESTION_COUNT && !folded.equals(prefix) && seen.add(folded)) {
+                    suggestions.add(suggestion);
+                }
+            }
+        }
+
+        if (suggestions.isEmpty()) {
+            searchHistorySection.setVisibility(View.GONE);
+            return;
+        }
+        searchHistoryTitle.setText("Suggestions");
+        searchHistorySection.setVisibility(View.VISIBLE);
+        chipsAdapter.clear();
+        chipsAdapter.addAll(0, suggestions);
+    }
+
     private void setupSearchResults() {
         // Use ListRowPresenter to show horizontal rows (like main screen)
         ListRowPresenter listRowPresenter = new ListRowPresenter();
@@ -181,91 +252,90 @@ public class CustomSearchFragment extends Fragment {
         searchResults.setAdapter(bridgeAdapter);
     }
 
-    private void showAllChannels() {
-        EXECUTOR.execute(() -> {
-            // Update UI on main thread
-            handler.post(() -> {
-                resultsAdapter.clear();
-                if (!allMovies.isEmpty()) {
-                    resultsAdapter.addAll(0, allMovies);
-                }
-            });
-        });
-    }
-
-    private void performSearch(String query) {
+    /**
+     * Run on EXECUTOR by the scheduler; returns the UI update for the results,
+     * or null if a newer query superseded this one
+     */
+    private Runnable runSearch(String query, BooleanSupplier cancelled) {
         if (TextUtils.isEmpty(query)) {
-            // Show search history and popular channels when query is empty
-            showSearchHistoryAndPopular();
-            return;
+            // Show search history, channels to continue and popular channels when query is empty
+            List<String> searchHistory = getSearchHistory();
+            List<Movie> continueWatching = loadedChannels(usageStats.getContinueWatching(CONTINUE_WATCHING_COUNT));
+            List<Movie> popularChannels = loadedChannels(usageStats.getPopularChannels(POPULAR_CHANNEL_COUNT));
+            return () -> showSearchHistoryAndPopular(searchHistory, continueWatching, popularChannels);
         }
 
-        // Save search query to history
-        saveSearchQuery(query);
-
-        EXECUTOR.execute(() -> {
-            List<Movie> results = new ArrayList<>();
-            String lowerQuery = query.toLowerCase();
-
-            for (Movie movie : allMovies) {
-                // Search by title
-                if (movie.getTitle().toLowerCase().contains(lowerQuery)) {
-                    results.add(movie);
-                }
-                // Also search by group
-                else if (!TextUtils.isEmpty(movie.getGroup()) &&
-                        movie.getGroup().toLowerCase().contains(lowerQuery)) {
-                    results.add(movie);
-                }
+        List<Movie> results = new ArrayList<>();
+        boolean closeMatches = false;
+        ChannelStore store = ChannelRepository.getInstance().getStore();
+        if (store != null) {
+            // Search by title and group through the index built when the list loaded;
+            // matches are listed by name, close matches best first
+            int[] positions = searchSession.search(ChannelSearchIndex.of(store), query, cancelled);
+            if (positions == null) {
+                return null;
             }
-
-            // Update UI on main thread
-            handler.post(() -> {
-                // Hide search history section when showing search results
-                if (searchHistorySection != null) {
-                    searchHistorySection.setVisibility(View.GONE);
+            if (positions.length == 0) {
+                // Nothing contains the query; maybe it has a typo
+                double[] popularity = usageStats.getPopularity(store);
+                positions = ChannelFuzzyIndex.of(store).search(query, FUZZY_RESULT_LIMIT,
+                        position -> popularity[position], cancelled);
+                if (positions == null) {
+                    return null;
                 }
+                closeMatches = true;
+            } else {
+                // The session keeps its results to narrow the next query from, so sort a copy
+                positions = positions.clone();
+                store.sortByName(positions);
+            }
+            for (int position : positions) {
+                results.add(store.get(position));
+            }
+        }
+        String title = closeMatches ? "Close matches" : "Search Results";
+        return () -> showSearchResults(title, results);
+    }
 
-                resultsAdapter.clear();
-                if (!results.isEmpty()) {
-                    // Create a horizontal row with search results
-                    HeaderItem header = new HeaderItem("Search Results (" + results.size() + " channels)");
-                    ArrayObjectAdapter listRowAdapter = new ArrayObjectAdapter(new SearchCardPresenter());
-                    listRowAdapter.addAll(0, results);
-                    resultsAdapter.add(new ListRow(header, listRowAdapter));
-                }
-            });
-        });
+    private void showSearchResults(String title, List<Movie> results) {
+        // The chips above show suggestions for the same text; leave them
+        resultsAdapter.clear();
+        if (!results.isEmpty()) {
+            // Create a horizontal row with search results
+            HeaderItem header = new HeaderItem(title + " (" + results.size() + " channels)");
+            ArrayObjectAdapter listRowAdapter = new ArrayObjectAdapter(new SearchCardPresenter());
+            listRowAdapter.addAll(0, results);
+            resultsAdapter.add(new ListRow(header, listRowAdapter));
+        }
     }
 
-    private void showSearchHistoryAndPopular() {
-        EXECUTOR.execute(() -> {
-            // Get search history and popular channels
-            List<String> searchHistory = getSearchHistory();
-            List<Movie> popularChannels = getPopularChannels();
+    private void showSearchHistoryAndPopular(List<String> searchHistory, List<Movie> continueWatching,
+                                             List<Movie> popularChannels) {
+        resultsAdapter.clear();
+
+        // Show search history chips
+        if (searchHistorySection != null && !searchHistory.isEmpty()) {
+            searchHistoryTitle.setText("Recent Searches");
+            searchHistorySection.setVisibility(View.VISIBLE);
+            chipsAdapter.clear();
+            chipsAdapter.addAll(0, searchHistory);
+        } else if (searchHistorySection != null) {
+            searchHistorySection.setVisibility(View.GONE);
+        }
 
-            // Update UI on main thread
-            handler.post(() -> {
-                resultsAdapter.clear();
-
-                // Show search history chips
-                if (searchHistorySection != null && !searchHistory.isEmpty()) {
-                    searchHistorySection.setVisibility(View.VISIBLE);
-                    chipsAdapter.clear();
-                    chipsAdapter.addAll(0, searchHistory);
-                } else if (searchHistorySection != null) {
-                    searchHistorySection.setVisibility(View.GONE);
-                }
+        // Add channels to continue and popular channels as horizontal rows
+        addChannelRow("Continue Watching", continueWatching);
+        addChannelRow("Popular Channels", popularChannels);
+    }
 
-                // Add popular channels as a horizontal row
-                if (!popularChannels.isEmpty()) {
-                    HeaderItem header = new HeaderItem("Popular Channels");
-                    ArrayObjectAdapter listRowAdapter = new ArrayObjectAdapter(new SearchCardPresenter());
-                    listRowAdapter.addAll(0, popularChannels);
-                    resultsAdapter.add(new ListRow(header, listRowAdapter));
-                }
-            });
-        });
+    private void addChannelRow(String title, List<Movie> channels) {
+        if (channels.isEmpty()) {
+            return;
+        }
+        HeaderItem header = new HeaderItem(title);
+        ArrayObjectAdapter listRowAdapter = new ArrayObjectAdapter(new SearchCardPresenter());
+        listRowAdapter.addAll(0, channels);
+        resultsAdapter.add(new ListRow(header, listRowAdapter));
     }
 
     private void saveSearchQuery(String query) {
@@ -290,79 +360,25 @@ public class CustomSearchFragment extends Fragment {
         return new ArrayList<>(history);
     }
 
-    private void trackChannelClick(Movie movie) {
-        if (movie == null || TextUtils.isEmpty(movie.getTitle())) return;
-
-        // Get current click counts
-        Map<String, Integer> clicks = getChannelClicks();
-        int currentCount = clicks.getOrDefault(movie.getTitle(), 0);
-        clicks.put(movie.getTitle(), currentCount + 1);
-
-        // Save back to preferences (convert to string format: "title:count,title:count,...")
-        StringBuilder sb = new StringBuilder();
-        for (Map.Entry<String, Integer> entry : clicks.entrySet()) {
-            if (sb.length() > 0) sb.append(",");
-            sb.append(entry.getKey()).append(":").append(entry.getValue());
-        }
-        prefs.edit().putString(KEY_CHANNEL_CLICKS, sb.toString()).apply();
-    }
-
-    private Map<String, Integer> getChannelClicks() {
-        String clicksStr = prefs.getString(KEY_CHANNEL_CLICKS, "");
-        Map<String, Integer> clicks = new HashMap<>();
-
-        if (!TextUtils.isEmpty(clicksStr)) {
-            String[] entries = clicksStr.split(",");
-            for (String entry : entries) {
-                String[] parts = entry.split(":");
-                if (parts.length == 2) {
-                    try {
-                        clicks.put(parts[0], Integer.parseInt(parts[1]));
-                    } catch (NumberFormatException e) {
-                        // Skip invalid entries
-                    }
-                }
-            }
-        }
-        return clicks;
-    }
-
-    private List<Movie> getPopularChannels() {
-        Map<String, Integer> clicks = getChannelClicks();
-
-        // Create list of movies with click counts
-        List<Map.Entry<Movie, Integer>> movieClicks = new ArrayList<>();
-        for (Movie movie : allMovies) {
-            int clickCount = clicks.getOrDefault(movie.getTitle(), 0);
-            if (clickCount > 0) {
-                movieClicks.add(new HashMap.SimpleEntry<>(movie, clickCount));
-            }
-        }
-
-        // Sort by click count descending
-        Collections.sort(movieClicks, new Comparator<Map.Entry<Movie, Integer>>() {
-            @Override
-            public int compare(Map.Entry<Movie, Integer> e1, Map.Entry<Movie, Integer> e2) {
-                return e2.getValue().compareTo(e1.getValue());
+    /**
+     * The loaded channels for IDs ranked by UsageStats; channels no longer in the list are skipped
+     */
+    private static List<Movie> loadedChannels(List<String> channelIds) {
+        ChannelRepository repository = ChannelRepository.getInstance();
+        List<Movie> channels = new ArrayList<>();
+        for (String channelId : channelIds) {
+            Movie movie = repository.getById(channelId);
+            if (movie != null) {
+                channels.add(movie);
             }
-        });
-
-        // Return top 10 popular channels
-        List<Movie> popular = new ArrayList<>();
-        int count = Math.min(10, movieClicks.size());
-        for (int i = 0; i < count; i++) {
-            popular.add(movieClicks.get(i).getKey());
         }
-
-        return popular;
+        return channels;
     }
 
     @Override
     public void onDestroyView() {
         super.onDestroyView();
-        if (delayedSearch != null) {
-            handler.removeCallbacks(delayedSearch);
-        }
+        searchScheduler.cancel();
     }
 
     /**
@@ -378,9 +394,12 @@ public class CustomSearchFragment extends Fragment {
                 // Get the movie from the view holder
                 if (vh.view.getTag() instanceof Movie) {
                     Movie movie = (Movie) vh.view.getTag();
-                    trackChannelClick(movie);
+                    // Opening a result commits the query that found it to the history,
+                    // and counts towards the channel's popularity
+                    saveSearchQuery(searchInput.getText().toString());
+                    usageStats.recordSearchClick(movie.getChannelId());
                     Intent intent = new Intent(getActivity(), PlaybackActivity.class);
-                    intent.putExtra(DetailsActivity.MOVIE, movie);
+                    intent.putExtra(PlaybackActivity.EXTRA_CHANNEL_ID, movie.getChannelId());
                     startActivity(intent);
                 }
             });
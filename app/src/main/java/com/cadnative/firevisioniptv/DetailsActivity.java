@@ -9,7 +9,7 @@ import androidx.fragment.app.FragmentActivity;
  */
 public class DetailsActivity extends FragmentActivity {
     public static final String SHARED_ELEMENT_NAME = "hero";
-    public static final String MOVIE = "Movie";
+    public static final String CHANNEL_ID = "channel_id";
 
     /**
      * Called when the activity is first created.
@@ -0,0 +1,66 @@
+package com.cadnative.firevisioniptv;
+
+import androidx.leanback.widget.ObjectAdapter;
+import androidx.leanback.widget.Presenter;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import java.util.List;
+
+/**
+ * ObjectAdapter whose contents are replaced by diffs computed elsewhere.
+ * Unlike ArrayObjectAdapter.setItems, the diff is calculated up front (on a
+ * background thread) and only dispatched here, so the main thread just
+ * notifies the views that actually changed. Main thread only.
+ *
+ * The lists given are used as they are, not copied, so a lazy list stays
+ * lazy; they must not change afterwards.
+ */
+public final class DiffObjectAdapter extends ObjectAdapter {
+    private List<?> items;
+
+    private final ListUpdateCallback updates = new ListUpdateCallback() {
+        @Override
+        public void onInserted(int position, int count) {
+            notifyItemRangeInserted(position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            notifyItemRangeRemoved(position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            notifyItemMoved(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            notifyItemRangeChanged(position, count, payload);
+        }
+    };
+
+    public DiffObjectAdapter(Presenter presenter, List<?> items) {
+        super(presenter);
+        this.items = items;
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public Object get(int position) {
+        return items.get(position);
+    }
+
+    /**
+     * Replace the contents with {@code newItems}, given the diff from the current contents to them
+     */
+    public void apply(List<?> newItems, DiffUtil.DiffResult diff) {
+        items = newItems;
+        diff.dispatchUpdatesTo(updates);
+    }
+}
@@ -2,24 +2,90 @@ package com.cadnative.firevisioniptv;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Manager class for handling favorite channels
+ * Manager class for handling favorite channels.
+ * Favorites are keyed by the server channel ID, which stays the same across
+ * list reloads. For each {@link ChannelStore} whose cards are checked, a
+ * bitset over channel positions is kept in step, so checking a card or
+ * building the favorites row needs no string hashing or allocation, even while
+ * cards of the snapshot store and of a newer store are bound side by side.
+ * Bitsets of stores nobody holds any more are dropped with them.
+ *
+ * Safe to use from any thread: readers get immutable snapshots that writers
+ * replace under a lock. Favorites are read from disk in the background, and
+ * changes made meanwhile are replayed on top once they arrive; a toggle is
+ * replayed as a flip of the stored state, so it never waits for the disk.
+ * Rapid toggles are coalesced into a single preferences write.
  */
 public class FavoritesManager {
+    private static final String TAG = "FavoritesManager";
     private static final String PREFS_NAME = "FireVisionFavorites";
-    private static final String FAVORITES_KEY = "favorite_channels";
+    private static final String FAVORITES_KEY = "favorite_channel_ids";
+    // Older versions keyed favorites by load position, which changed with the list
+    private static final String LEGACY_FAVORITES_KEY = "favorite_channels";
+    private static final long SAVE_DELAY_MS = 500;
 
     private static FavoritesManager instance;
-    private SharedPreferences prefs;
-    private Set<String> favorites;
+
+    private final SharedPreferences prefs;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    // Both replaced, never modified, once published
+    private volatile Set<String> favorites = Collections.emptySet();
+    private volatile Index lastIndex;   // most recently checked store, read without the lock
+
+    // Guarded by this
+    // Favorite positions by store; the bitsets must not refer back to their store
+    private final Map<ChannelStore, BitSet> indexes = new WeakHashMap<>();
+    private boolean loaded;
+    private final List<Change> pendingChanges = new ArrayList<>();
+    private boolean saveScheduled;
+
+    /**
+     * Favorite positions in one store
+     */
+    private static final class Index {
+        final ChannelStore store;
+        final BitSet positions;
+
+        Index(ChannelStore store, BitSet positions) {
+            this.store = store;
+            this.positions = positions;
+        }
+    }
+
+    /**
+     * A change to the favorites; null channelId means clear all
+     */
+    private static final class Change {
+        final String channelId;
+        final boolean favorite;
+        final boolean toggle;   // flip the channel, whatever the set it is applied to holds
+
+        Change(String channelId, boolean favorite, boolean toggle) {
+            this.channelId = channelId;
+            this.favorite = favorite;
+            this.toggle = toggle;
+        }
+    }
 
     private FavoritesManager(Context context) {
         prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        loadFavorites();
+        executor.execute(this::loadFavorites);
     }
 
     public static synchronized FavoritesManager getInstance(Context context) {
@@ -30,12 +96,161 @@ public class FavoritesManager {
     }
 
     private void loadFavorites() {
-        favorites = new HashSet<>(prefs.getStringSet(FAVORITES_KEY, new HashSet<>()));
+        Set<String> stored = new HashSet<>(prefs.getStringSet(FAVORITES_KEY, new HashSet<>()));
+        synchronized (this) {
+            for (Change change : pendingChanges) {
+                apply(stored, change);
+            }
+            if (!pendingChanges.isEmpty()) {
+                scheduleSave();
+            }
+            pendingChanges.clear();
+            loaded = true;
+            Index last = lastIndex;
+            if (last != null && prefs.contains(LEGACY_FAVORITES_KEY)) {
+                migrateLegacyFavorites(last.store, stored);
+            }
+            publish(stored, null);
+        }
+        Log.d(TAG, "Loaded " + stored.size() + " favorites");
+    }
+
+    /**
+     * Favorites of older versions were positions in the list as it was first loaded;
+     * map them to channel IDs using the current list, the best guess available.
+     * The migrated set replaces the legacy one in a single write, so a process
+     * killed right after never finds both gone. Caller holds the lock.
+     */
+    private void migrateLegacyFavorites(ChannelStore store, Set<String> into) {
+        Set<String> legacy = prefs.getStringSet(LEGACY_FAVORITES_KEY, null);
+        if (legacy == null) {
+            return;
+        }
+        for (String value : legacy) {
+            try {
+                int position = Integer.parseInt(value);
+                if (position >= 0 && position < store.size()) {
+                    into.add(store.get(position).getChannelId());
+                }
+            } catch (NumberFormatException e) {
+                // Not a position; nothing to migrate
+            }
+        }
+        prefs.edit()
+                .putStringSet(FAVORITES_KEY, new HashSet<>(into))
+                .remove(LEGACY_FAVORITES_KEY)
+                .apply();
+    }
+
+    /**
+     * Favorite positions in a store, built the first time the store is checked
+     */
+    private Index indexFor(ChannelStore store) {
+        Index last = lastIndex;
+        if (last != null && last.store == store) {
+            return last;
+        }
+        synchronized (this) {
+            BitSet positions = indexes.get(store);
+            if (positions == null) {
+                if (loaded && prefs.contains(LEGACY_FAVORITES_KEY)) {
+                    Set<String> ids = new HashSet<>(favorites);
+                    migrateLegacyFavorites(store, ids);
+                    publish(ids, null);
+                }
+                positions = positionsOf(store, favorites);
+                indexes.put(store, positions);
+            }
+            Index index = new Index(store, positions);
+            lastIndex = index;
+            return index;
+        }
+    }
+
+    /**
+     * Replace the snapshot with a new set and bring every store's bitset up to date.
+     * Caller holds the lock.
+     */
+    private void publish(Set<String> ids, String changedId) {
+        favorites = Collections.unmodifiableSet(ids);
+        for (Map.Entry<ChannelStore, BitSet> entry : indexes.entrySet()) {
+            entry.setValue(update(entry.getKey(), entry.getValue(), ids, changedId));
+        }
+        Index last = lastIndex;
+        if (last != null) {
+            lastIndex = new Index(last.store, indexes.get(last.store));
+        }
+    }
+
+    /**
+     * A store's bitset after a change, or the same bitset if its bits are unaffected
+     */
+    private static BitSet update(ChannelStore store, BitSet positions, Set<String> ids, String changedId) {
+        if (changedId == null) {
+            return positionsOf(store, ids);
+        }
+        // One channel changed: copy the bits and flip just that one
+        int position = store.indexOf(changedId);
+        boolean favorite = ids.contains(changedId);
+        if (position < 0 || positions.get(position) == favorite) {
+            return positions;
+        }
+        BitSet updated = (BitSet) positions.clone();
+        updated.set(position, favorite);
+        return updated;
+    }
+
+    private static BitSet positionsOf(ChannelStore store, Set<String> ids) {
+        BitSet positions = new BitSet(store.size());
+        for (String channelId : ids) {
+            int position = store.indexOf(channelId);
+            if (position >= 0) {
+                positions.set(position);
+            }
+        }
+        return positions;
+    }
+
+    private static void apply(Set<String> ids, Change change) {
+        if (change.channelId == null) {
+            ids.clear();
+        } else if (change.toggle ? !ids.contains(change.channelId) : change.favorite) {
+            ids.add(change.channelId);
+        } else {
+            ids.remove(change.channelId);
+        }
+    }
+
+    private synchronized void change(Change change) {
+        Set<String> ids = new HashSet<>(favorites);
+        apply(ids, change);
+        if (loaded) {
+            scheduleSave();
+        } else {
+            pendingChanges.add(change);
+        }
+        publish(ids, change.channelId);
+    }
+
+    /**
+     * Write the favorites shortly after the last change, so a burst of toggles costs one write.
+     * Caller holds the lock.
+     */
+    private void scheduleSave() {
+        if (!saveScheduled) {
+            saveScheduled = true;
+            executor.schedule(this::saveFavorites, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
     }
 
     private void saveFavorites() {
+        Set<String> snapshot;
+        synchronized (this) {
+            saveScheduled = false;
+            snapshot = favorites;
+        }
         SharedPreferences.Editor editor = prefs.edit();
-        editor.putStringSet(FAVORITES_KEY, favorites);
+        editor.putStringSet(FAVORITES_KEY, new HashSet<>(snapshot));
         editor.apply();
     }
 
@@ -43,29 +258,24 @@ public class FavoritesManager {
      * Add a channel to favorites
      */
     public void addFavorite(String channelId) {
-        favorites.add(channelId);
-        saveFavorites();
+        change(new Change(channelId, true, false));
     }
 
     /**
      * Remove a channel from favorites
      */
     public void removeFavorite(String channelId) {
-        favorites.remove(channelId);
-        saveFavorites();
+        change(new Change(channelId, false, false));
     }
 
     /**
-     * Toggle favorite status of a channel
+     * Toggle favorite status of a channel and return the new status.
+     * While the stored favorites are still loading this is a best guess: the
+     * toggle is replayed as a flip of the stored state once it arrives.
      */
-    public boolean toggleFavorite(String channelId) {
-        if (isFavorite(channelId)) {
-            removeFavorite(channelId);
-            return false;
-        } else {
-            addFavorite(channelId);
-            return true;
-        }
+    public synchronized boolean toggleFavorite(String channelId) {
+        change(new Change(channelId, false, true));
+        return isFavorite(channelId);
     }
 
     /**
@@ -76,17 +286,30 @@ public class FavoritesManager {
     }
 
     /**
-     * Get all favorite channel IDs
+     * Check if a loaded channel is a favorite, without hashing its ID
+     */
+    public boolean isFavorite(Movie movie) {
+        return indexFor(movie.getStore()).positions.get(movie.getPosition());
+    }
+
+    /**
+     * Positions of the favorite channels in a store. Shared and must not be modified.
+     */
+    public BitSet getFavoritePositions(ChannelStore store) {
+        return indexFor(store).positions;
+    }
+
+    /**
+     * Get all favorite channel IDs, as an unmodifiable snapshot
      */
     public Set<String> getAllFavorites() {
-        return new HashSet<>(favorites);
+        return favorites;
     }
 
     /**
      * Clear all favorites
      */
     public void clearAllFavorites() {
-        favorites.clear();
-        saveFavorites();
+        change(new Change(null, false, false));
     }
 }
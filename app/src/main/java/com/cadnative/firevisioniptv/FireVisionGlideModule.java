@@ -0,0 +1,47 @@
+package com.cadnative.firevisioniptv;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.module.AppGlideModule;
+
+/**
+ * App-wide Glide configuration.
+ * Sizes the memory cache and bitmap pool from the device's memory class, so
+ * a low-end stick keeps fewer decoded logos than a TV box with room to
+ * spare, instead of Glide's screen-based defaults.
+ */
+@GlideModule
+public final class FireVisionGlideModule extends AppGlideModule {
+    private static final String TAG = "FireVisionGlideModule";
+
+    // Share of the app's memory class for decoded images, and half that for reusable bitmaps
+    private static final int MEMORY_CACHE_DIVISOR = 8;
+    private static final int LOW_RAM_MEMORY_CACHE_DIVISOR = 16;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        long memoryClassBytes = activityManager.getMemoryClass() * 1024L * 1024L;
+        boolean lowRam = activityManager.isLowRamDevice();
+        long memoryCacheBytes = memoryClassBytes / (lowRam ? LOW_RAM_MEMORY_CACHE_DIVISOR : MEMORY_CACHE_DIVISOR);
+        long bitmapPoolBytes = memoryCacheBytes / 2;
+
+        builder.setMemoryCache(new LruResourceCache(memoryCacheBytes));
+        builder.setBitmapPool(new LruBitmapPool(bitmapPoolBytes));
+        Log.d(TAG, "Memory class " + activityManager.getMemoryClass() + "MB" + (lowRam ? " (low RAM)" : "")
+                + ": memory cache " + (memoryCacheBytes >> 20) + "MB, bitmap pool " + (bitmapPoolBytes >> 20) + "MB");
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
@@ -3,6 +3,8 @@ package com.cadnative.firevisioniptv;
 import android.app.Application;
 import android.content.Context;
 
+import com.cadnative.firevisioniptv.api.ApiClient;
+
 public class FirevisionApplication extends Application {
     private static FirevisionApplication instance;
 
@@ -10,6 +12,13 @@ public class FirevisionApplication extends Application {
     public void onCreate() {
         super.onCreate();
         instance = this;
+
+        // Measure the configured servers up front so the first request picks the fastest
+        ApiClient.probeEndpoints(this);
+
+        // Start reading favorites and usage history off the main thread before they are needed
+        FavoritesManager.getInstance(this);
+        UsageStats.getInstance(this);
     }
 
     public static Context getAppContext() {
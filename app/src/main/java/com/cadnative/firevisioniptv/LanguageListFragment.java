@@ -22,8 +22,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import com.cadnative.firevisioniptv.api.ApiClient;
-
 /**
  * Fragment to display language categories (English, Hindi, etc.)
  */
@@ -38,7 +36,6 @@ public class LanguageListFragment extends Fragment {
     
     private CategoryCardAdapter adapter;
     private List<CategoryItem> languageItems = new ArrayList<>();
-    private List<Channel> allChannels = new ArrayList<>();
     
     @Nullable
     @Override
@@ -67,18 +64,23 @@ public class LanguageListFragment extends Fragment {
     }
     
     private void loadLanguages() {
+        // Language counts were computed into the facet index when the list was loaded
+        ChannelFacetIndex facets = MovieList.getFacets();
+        if (facets != null) {
+            processLanguages(facets);
+            return;
+        }
+
         loadingProgress.setVisibility(View.VISIBLE);
         categoryGrid.setVisibility(View.GONE);
         emptyText.setVisibility(View.GONE);
         
-        ApiClient.fetchChannelList(getContext(), new ApiClient.ChannelListCallback() {
+        MovieList.loadMoviesFromServer(getContext(), getContext().getAssets(), new MovieList.MovieListCallback() {
             @Override
-            public void onSuccess(List<Channel> channels) {
-                allChannels.clear();
-                allChannels.addAll(channels);
-                
+            public void onSuccess(List<Movie> movies) {
+                ChannelFacetIndex loaded = ChannelFacetIndex.of(movies);
                 if (getActivity() != null) {
-                    getActivity().runOnUiThread(() -> processLanguages());
+                    getActivity().runOnUiThread(() -> processLanguages(loaded));
                 }
             }
             
@@ -92,29 +94,16 @@ public class LanguageListFragment extends Fragment {
         });
     }
     
-    private void processLanguages() {
-        // Group channels by individual language and count them
-        Map<String, Integer> languageCount = new HashMap<>();
-        
-        for (Channel channel : allChannels) {
-            String languages = channel.getChannelLanguage();
-            if (languages == null || languages.isEmpty() || languages.equals("Unknown")) {
-                continue; // Skip unknown languages
-            }
-            
-            // Split multiple languages (e.g., "Urdu, Hindi, English" -> ["Urdu", "Hindi", "English"])
-            String[] languageArray = languages.split(",");
-            for (String lang : languageArray) {
-                String trimmedLang = lang.trim();
-                if (!trimmedLang.isEmpty() && !trimmedLang.equals("Unknown")) {
-                    languageCount.put(trimmedLang, languageCount.getOrDefault(trimmedLang, 0) + 1);
-                }
-            }
-        }
+    private void processLanguages(ChannelFacetIndex facets) {
+        // Each individual language of multi-language channels is already counted by the index
+        Map<String, Integer> languageCount = facets.getLanguageCounts();
         
         // Create CategoryItem objects (using LANGUAGE type)
         languageItems.clear();
         for (Map.Entry<String, Integer> entry : languageCount.entrySet()) {
+            if (entry.getKey().equals("Unknown")) {
+                continue; // Skip unknown languages
+            }
             CategoryItem item = new CategoryItem(
                     entry.getKey(),
                     0, // No icon for languages
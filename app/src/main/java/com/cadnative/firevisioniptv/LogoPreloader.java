@@ -0,0 +1,125 @@
+package com.cadnative.firevisioniptv;
+
+import android.graphics.drawable.Drawable;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.leanback.widget.ListRow;
+import androidx.leanback.widget.ObjectAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.target.Target;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Loads the logos of the rows just past the screen, on the side the D-pad is
+ * moving towards, so cards show their logo as soon as they scroll in.
+ * Listens to the vertical grid of browse rows. Only the first cards of each
+ * row are loaded, as rows open scrolled to the start.
+ *
+ * Preloads of rows that leave the window ahead are cleared, which cancels
+ * loads still running. A row that scrolls into view keeps its load: the
+ * bound cards ask for the same request, and Glide only stops a shared load
+ * once nobody waits for it. Main thread only.
+ */
+final class LogoPreloader extends RecyclerView.OnScrollListener {
+    private static final int ROWS_AHEAD = 2;
+    private static final int CARDS_PER_ROW = 6;
+
+    private final RequestManager requests;
+    private final RequestOptions options;
+    private final Supplier<ObjectAdapter> rows;
+    // Preload targets by row position
+    private final SparseArray<List<Target<Drawable>>> preloaded = new SparseArray<>();
+    private boolean down = true;
+    private int lastFirst = -1;
+    private int lastLast = -1;
+
+    /**
+     * @param rows the browse rows currently set on the grid
+     */
+    LogoPreloader(RequestManager requests, RequestOptions options, Supplier<ObjectAdapter> rows) {
+        this.requests = requests;
+        this.options = options;
+        this.rows = rows;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        // Layout passes report no movement; keep the last direction
+        if (dy != 0) {
+            down = dy > 0;
+        }
+        int first = Integer.MAX_VALUE;
+        int last = -1;
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            int position = recyclerView.getChildAdapterPosition(recyclerView.getChildAt(i));
+            if (position != RecyclerView.NO_POSITION) {
+                first = Math.min(first, position);
+                last = Math.max(last, position);
+            }
+        }
+        if (last < 0 || (first == lastFirst && last == lastLast && dy == 0)) {
+            return;
+        }
+        lastFirst = first;
+        lastLast = last;
+
+        ObjectAdapter adapter = rows.get();
+        int size = adapter != null ? adapter.size() : 0;
+        int from = Math.max(0, down ? last + 1 : first - ROWS_AHEAD);
+        int to = Math.min(size - 1, down ? last + ROWS_AHEAD : first - 1);
+
+        for (int i = preloaded.size() - 1; i >= 0; i--) {
+            int position = preloaded.keyAt(i);
+            if (position < from || position > to) {
+                clear(preloaded.valueAt(i));
+                preloaded.removeAt(i);
+            }
+        }
+        for (int position = from; position <= to; position++) {
+            if (preloaded.get(position) == null) {
+                preloaded.put(position, preloadRow(adapter.get(position)));
+            }
+        }
+    }
+
+    private List<Target<Drawable>> preloadRow(Object row) {
+        List<Target<Drawable>> targets = new ArrayList<>();
+        if (!(row instanceof ListRow)) {
+            return targets;
+        }
+        ObjectAdapter cards = ((ListRow) row).getAdapter();
+        int count = Math.min(CARDS_PER_ROW, cards.size());
+        for (int i = 0; i < count; i++) {
+            Object card = cards.get(i);
+            if (card instanceof Movie && ChannelLogos.hasLogo((Movie) card)) {
+                targets.add(requests.load(((Movie) card).getCardImageUrl()).apply(options).preload());
+            }
+        }
+        return targets;
+    }
+
+    private void clear(List<Target<Drawable>> targets) {
+        for (Target<Drawable> target : targets) {
+            requests.clear(target);
+        }
+    }
+
+    /**
+     * Cancel all preloads, e.g. when the rows are replaced
+     */
+    void reset() {
+        for (int i = 0; i < preloaded.size(); i++) {
+            clear(preloaded.valueAt(i));
+        }
+        preloaded.clear();
+        lastFirst = -1;
+        lastLast = -1;
+    }
+}
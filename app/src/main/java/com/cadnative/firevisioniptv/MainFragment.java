@@ -8,6 +8,7 @@ import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.content.Context;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
@@ -18,10 +19,8 @@ import android.view.ViewGroup;
 import androidx.fragment.app.Fragment;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import androidx.leanback.app.BackgroundManager;
 import androidx.leanback.app.BrowseSupportFragment;
-import androidx.leanback.widget.ArrayObjectAdapter;
 import androidx.leanback.widget.HeaderItem;
 import androidx.leanback.widget.HorizontalGridView;
 import androidx.leanback.widget.ImageCardView;
@@ -37,7 +36,8 @@ import androidx.core.app.ActivityOptionsCompat;
 import androidx.core.content.ContextCompat;
 import androidx.leanback.widget.VerticalGridView;
 
-import android.util.DisplayMetrics;
+import com.bumptech.glide.Glide;
+
 import android.util.Log;
 import android.view.Gravity;
 import android.view.View;
@@ -46,19 +46,8 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import com.bumptech.glide.Glide;
-import com.bumptech.glide.request.target.SimpleTarget;
-import com.bumptech.glide.request.transition.Transition;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.TreeMap;
 
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
@@ -75,10 +64,10 @@ public class MainFragment extends BrowseSupportFragment {
     private static final int MAX_NUM_COLS = 6; // Increased for modern widescreen layout
 
     private final Handler mHandler = new Handler(Looper.myLooper());
+    private final Runnable mUpdateBackground = () -> updateBackground(mBackgroundUri);
     private Drawable mDefaultBackground;
-    private DisplayMetrics mMetrics;
-    private Timer mBackgroundTimer;
-    private String mBackgroundUri;
+    private String mBackgroundUri;      // selected card's background, applied once selection settles
+    private String mShownBackgroundUri;
     private BackgroundManager mBackgroundManager;
 
     private AssetManager assetManager;
@@ -90,6 +79,14 @@ public class MainFragment extends BrowseSupportFragment {
     private boolean showFavoritesOnly = false;
     private String filterCategory = null;
     private String filterType = null;
+    private List<Movie> displayedList;
+    private long loadStartedAt;
+    private BrowseRowBuilder rowBuilder;
+    private String browseMode;
+    // The rows on screen; refreshes are diffed against them
+    private DiffObjectAdapter rowsAdapter;
+    private BrowseRowBuilder.Snapshot shownRows;
+    private LogoPreloader logoPreloader;
 
     /**
      * Create a new instance showing only favorites
@@ -126,6 +123,7 @@ public class MainFragment extends BrowseSupportFragment {
             filterCategory = getArguments().getString(ARG_FILTER_CATEGORY);
             filterType = getArguments().getString(ARG_FILTER_TYPE);
         }
+        rowBuilder = createRowBuilder();
 
         super.onActivityCreated(savedInstanceState);
 
@@ -150,13 +148,36 @@ public class MainFragment extends BrowseSupportFragment {
 
     }
 
+    @Override
+    public void onResume() {
+        super.onResume();
+        // The browse layout may have been switched in Settings
+        if (rowBuilder != null && !SettingsActivity.getBrowseMode(getContext()).equals(browseMode)) {
+            rowBuilder.cancel();
+            rowBuilder = createRowBuilder();
+            if (displayedList != null) {
+                // Rows of the other layout share nothing with these; start over
+                rowsAdapter = null;
+                shownRows = null;
+                displayChannels(displayedList, () -> { });
+            }
+        }
+    }
+
+    private BrowseRowBuilder createRowBuilder() {
+        browseMode = SettingsActivity.getBrowseMode(getContext());
+        return new BrowseRowBuilder(showFavoritesOnly ? FavoritesManager.getInstance(getContext()) : null,
+                filterCategory, filterType, MAX_NUM_COLS,
+                SettingsActivity.BROWSE_MODE_CATEGORY_ROWS.equals(browseMode));
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
-        if (null != mBackgroundTimer) {
-            Log.d(TAG, "onDestroy: " + mBackgroundTimer.toString());
-            mBackgroundTimer.cancel();
+        if (rowBuilder != null) {
+            rowBuilder.cancel();
         }
+        mHandler.removeCallbacks(mUpdateBackground);
     }
 
     private void showLoadingSpinner() {
@@ -224,6 +245,30 @@ public class MainFragment extends BrowseSupportFragment {
     private void loadRows() {
         showLoadingSpinner();
         hideErrorMessage();
+        loadStartedAt = SystemClock.elapsedRealtime();
+
+        // Paint the last known channel list straight away, then revalidate with the server
+        MovieList.loadMoviesFromSnapshot(getContext(), new MovieList.MovieListCallback() {
+            @Override
+            public void onSuccess(List<Movie> list) {
+                if (list.isEmpty() || getActivity() == null) {
+                    return;
+                }
+                getActivity().runOnUiThread(() -> {
+                    if (displayedList != null) {
+                        return; // Network result is already on screen
+                    }
+                    hideLoadingSpinner();
+                    hideErrorMessage();
+                    showChannels(list, "snapshot");
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.w(TAG, "Channel snapshot unavailable: " + error);
+            }
+        });
 
         // Load channels from server
         MovieList.loadMoviesFromServer(getContext(), assetManager, new MovieList.MovieListCallback() {
@@ -233,7 +278,13 @@ public class MainFragment extends BrowseSupportFragment {
                     hideLoadingSpinner();
                     if (list != null && !list.isEmpty()) {
                         hideErrorMessage();
-                        displayChannels(list);
+                        if (list == displayedList) {
+                            Log.d(TAG, "Channel list already on screen");
+                        } else {
+                            // Even an unchanged list goes through the row diff, off the main
+                            // thread, so the cards move over to the current store
+                            showChannels(list, "network");
+                        }
                     } else {
                         // Server connected successfully but no channels available
                         showErrorMessage("No channels in your list.\n\nPlease add channels to your account via the dashboard:\n" + 
@@ -246,155 +297,73 @@ public class MainFragment extends BrowseSupportFragment {
             public void onError(String error) {
                 getActivity().runOnUiThread(() -> {
                     hideLoadingSpinner();
-                    showErrorMessage("Failed to connect to server.\n\nPlease check your internet connection and TV code in Settings.");
                     Log.e(TAG, "Channel load error: " + error);
+                    if (displayedList != null) {
+                        // Keep showing the stored list rather than replacing it with an error
+                        return;
+                    }
+                    showErrorMessage("Failed to connect to server.\n\nPlease check your internet connection and TV code in Settings.");
                 });
             }
         });
     }
 
-    private void displayChannels(List<Movie> list) {
-        ArrayObjectAdapter rowsAdapter = new ArrayObjectAdapter(new NetflixListRowPresenter());
-        CardPresenter cardPresenter = new CardPresenter();
-
-        // Filter for favorites if needed
-        if (showFavoritesOnly) {
-            FavoritesManager favManager = FavoritesManager.getInstance(getContext());
-            List<Movie> favoritesList = new ArrayList<>();
-            for (Movie movie : list) {
-                if (favManager.isFavorite(String.valueOf(movie.getId()))) {
-                    favoritesList.add(movie);
-                }
+    /**
+     * Display a channel list and record how long the first paint took for its source
+     */
+    private void showChannels(List<Movie> list, String source) {
+        boolean first = displayedList == null;
+        // Claim the screen now; the rows follow once built
+        displayedList = list;
+        displayChannels(list, () -> {
+            if (first) {
+                Log.i(TAG, "Time to first row from " + source + ": "
+                        + (SystemClock.elapsedRealtime() - loadStartedAt) + "ms");
             }
-            list = favoritesList;
+        });
+    }
 
+    /**
+     * Build the rows for a list off the main thread, then attach them, or if rows
+     * are already showing, apply just the differences
+     */
+    private void displayChannels(List<Movie> list, Runnable onShown) {
+        if (showFavoritesOnly) {
             // Update title to show we're in favorites view
             setTitle("My Favorites");
         }
-        
-        // Filter by category or language if needed
         if (filterCategory != null && filterType != null) {
-            List<Movie> filteredList = new ArrayList<>();
-            for (Movie movie : list) {
-                if ("category".equals(filterType)) {
-                    // Filter by category (channelGroup)
-                    if (filterCategory.equals(movie.getGroup())) {
-                        filteredList.add(movie);
-                    }
-                } else if ("language".equals(filterType)) {
-                    // Filter by language - check if the language field contains the selected language
-                    // Since languages can be comma-separated (e.g., "Urdu, Hindi, English"),
-                    // we check if the selected language is present in the string
-                    String movieLanguages = movie.getLanguage();
-                    if (movieLanguages != null && movieLanguages.contains(filterCategory)) {
-                        filteredList.add(movie);
-                    }
-                }
-            }
-            list = filteredList;
-            
             // Update title to show current filter
             setTitle(filterCategory);
         }
 
-        Map<String, List<Movie>> groupedMovies = new TreeMap<>();  // Using TreeMap for alphabetical sorting
-
-        for (Movie movie : list) {
-            String group = movie.getGroup();
-            if (group == null || group.isEmpty()) {
-                group = "zzz_uncategorized";  // Prefix with 'zzz_' to ensure it's last alphabetically
-            } else if (group.equalsIgnoreCase("Uncategorized") || group.equalsIgnoreCase("General") || group.equalsIgnoreCase("Other")) {
-                group = "zzz_uncategorized";  // Move Uncategorized, General, and Other to the end
-            }
-            if (!groupedMovies.containsKey(group)) {
-                groupedMovies.put(group, new ArrayList<>());
-            }
-            groupedMovies.get(group).add(movie);
-        }
-
-// Move "uncategorized" group to a separate variable and remove it from the TreeMap
-        List<Movie> otherMovies = groupedMovies.remove("zzz_uncategorized");
-
-        for (Map.Entry<String, List<Movie>> entry : groupedMovies.entrySet()) {
-            String group = entry.getKey();
-            List<Movie> moviesInGroup = entry.getValue();
-
-            // Calculate the number of rows needed for this group
-            int numRows = (moviesInGroup.size() + MAX_NUM_COLS - 1) / MAX_NUM_COLS;
-
-            for (int i = 0; i < numRows; i++) {
-                ArrayObjectAdapter listRowAdapter = new ArrayObjectAdapter(cardPresenter);
-
-                // Calculate start and end indices for this row
-                int startIndex = i * MAX_NUM_COLS;
-                int endIndex = Math.min((i + 1) * MAX_NUM_COLS, moviesInGroup.size());
-
-                // Add movies to this row
-                listRowAdapter.addAll(0, moviesInGroup.subList(startIndex, endIndex));
-
-                // Create header for this row
-                String headerText = group;
-                if (numRows > 1) {
-                    int firstMovieIndex = startIndex + 1;  // Adding 1 to convert from 0-based to 1-based indexing
-                    int lastMovieIndex = endIndex;
-                    headerText += " (" + firstMovieIndex + "-" + lastMovieIndex + ")";
-                } else {
-                    headerText += " (" + moviesInGroup.size() + ")";
-                }
-
-                HeaderItem header = new HeaderItem(0, headerText);
-                rowsAdapter.add(new ListRow(header, listRowAdapter));
+        rowBuilder.submit(list, shownRows, snapshot -> {
+            if (!isAdded()) {
+                return;
             }
-        }
-
-// Now handle the "uncategorized" group if it exists
-        if (otherMovies != null && !otherMovies.isEmpty()) {
-            int numRows = (otherMovies.size() + MAX_NUM_COLS - 1) / MAX_NUM_COLS;
-
-            for (int i = 0; i < numRows; i++) {
-                ArrayObjectAdapter listRowAdapter = new ArrayObjectAdapter(cardPresenter);
-
-                int startIndex = i * MAX_NUM_COLS;
-                int endIndex = Math.min((i + 1) * MAX_NUM_COLS, otherMovies.size());
-
-                listRowAdapter.addAll(0, otherMovies.subList(startIndex, endIndex));
-
-                String headerText = "Uncategorized";
-                if (numRows > 1) {
-                    int firstMovieIndex = startIndex + 1;
-                    int lastMovieIndex = endIndex;
-                    headerText += " (" + firstMovieIndex + "-" + lastMovieIndex + ")";
-                } else {
-                    headerText += " (" + otherMovies.size() + ")";
+            long started = SystemClock.uptimeMillis();
+            if (rowsAdapter != null && snapshot.isIncremental()) {
+                // Keeps view holders, scroll position and focus
+                snapshot.applyTo(rowsAdapter);
+            } else {
+                rowsAdapter = new DiffObjectAdapter(new NetflixListRowPresenter(), snapshot.rows);
+                setAdapter(rowsAdapter);
+                if (logoPreloader != null) {
+                    logoPreloader.reset();
                 }
 
-                HeaderItem header = new HeaderItem(0, headerText);
-                rowsAdapter.add(new ListRow(header, listRowAdapter));
-            }
-        }
-
-//        HeaderItem gridHeader = new HeaderItem(i, "PREFERENCES");
-//
-//        GridItemPresenter mGridPresenter = new GridItemPresenter();
-//        ArrayObjectAdapter gridRowAdapter = new ArrayObjectAdapter(mGridPresenter);
-//        gridRowAdapter.add(getResources().getString(R.string.grid_view));
-//        gridRowAdapter.add(getString(R.string.error_fragment));
-//        gridRowAdapter.add(getResources().getString(R.string.personal_settings));
-//        rowsAdapter.add(new ListRow(gridHeader, gridRowAdapter));
-
-        setAdapter(rowsAdapter);
-
-        if (rowsAdapter.size() > 0) {
-            ListRow firstRow = (ListRow) rowsAdapter.get(0);
-            if (firstRow != null && firstRow.getAdapter() != null && firstRow.getAdapter().size() > 0) {
-                Object firstItem = firstRow.getAdapter().get(0);
-                if (firstItem != null) {
-                    setSelectedPosition(0); // Select the first row
-
+                if (rowsAdapter.size() > 0) {
+                    ListRow firstRow = (ListRow) rowsAdapter.get(0);
+                    if (firstRow != null && firstRow.getAdapter() != null && firstRow.getAdapter().size() > 0) {
+                        setSelectedPosition(0); // Select the first row
+                    }
                 }
             }
-        }
-
+            shownRows = snapshot;
+            Log.d(TAG, "Rows for " + snapshot.source.size() + " channels: built in " + snapshot.buildMs
+                    + "ms off the main thread, attached in " + (SystemClock.uptimeMillis() - started) + "ms");
+            onShown.run();
+        });
     }
 
     private void prepareBackgroundManager() {
@@ -405,8 +374,7 @@ public class MainFragment extends BrowseSupportFragment {
         }
 
         mDefaultBackground = ContextCompat.getDrawable(getContext(), R.drawable.default_background);
-        mMetrics = new DisplayMetrics();
-        getActivity().getWindowManager().getDefaultDisplay().getMetrics(mMetrics);
+        BackgroundCache.getInstance(getContext()).prefetch(MovieList.getBackgroundUrls());
     }
 
     private void setupUIElements() {
@@ -446,6 +414,10 @@ public class MainFragment extends BrowseSupportFragment {
                     
                     // Add scroll listener to hide/show title
                     setupTitleAutoHide(gridView);
+
+                    logoPreloader = new LogoPreloader(Glide.with(this),
+                            ChannelLogos.cardOptions(requireContext()), this::getAdapter);
+                    gridView.addOnScrollListener(logoPreloader);
                 }
             }
         }, 500);
@@ -498,31 +470,31 @@ public class MainFragment extends BrowseSupportFragment {
     }
 
     private void updateBackground(String uri) {
-        int width = mMetrics.widthPixels;
-        int height = mMetrics.heightPixels;
-        Glide.with(getActivity())
-                .load(uri)
-                .centerCrop()
-                .error(mDefaultBackground)
-                .into(new SimpleTarget<Drawable>(width, height) {
-                    @Override
-                    public void onResourceReady(@NonNull Drawable drawable,
-                                                @Nullable Transition<? super Drawable> transition) {
-                        mBackgroundManager.setDrawable(drawable);
-                    }
-                });
-        mBackgroundTimer.cancel();
-    }
-
-    private void startBackgroundTimer() {
-        if (null != mBackgroundTimer) {
-            mBackgroundTimer.cancel();
+        if (uri == null || uri.equals(mShownBackgroundUri)) {
+            return;
         }
-        mBackgroundTimer = new Timer();
-        mBackgroundTimer.schedule(new UpdateBackgroundTask(), BACKGROUND_UPDATE_DELAY);
+        BackgroundCache.getInstance(getContext()).load(uri, bitmap -> {
+            // Skip if the fragment is gone or the selection moved on while loading
+            if (!isAdded() || !uri.equals(mBackgroundUri)) {
+                return;
+            }
+            if (bitmap != null) {
+                mBackgroundManager.setBitmap(bitmap);
+                mShownBackgroundUri = uri;
+            } else {
+                mBackgroundManager.setDrawable(mDefaultBackground);
+            }
+        });
     }
 
-
+    /**
+     * Update the background once the selection has rested for BACKGROUND_UPDATE_DELAY,
+     * so scrolling through cards does not load one per card
+     */
+    private void scheduleBackgroundUpdate() {
+        mHandler.removeCallbacks(mUpdateBackground);
+        mHandler.postDelayed(mUpdateBackground, BACKGROUND_UPDATE_DELAY);
+    }
 
     private final class ItemViewClickedListener implements OnItemViewClickedListener {
         @Override
@@ -533,7 +505,7 @@ public class MainFragment extends BrowseSupportFragment {
                 Movie movie = (Movie) item;
                 Log.d(TAG, "Item: " + item.toString());
                 Intent intent = new Intent(getActivity(), PlaybackActivity.class);
-                intent.putExtra(DetailsActivity.MOVIE, movie);
+                intent.putExtra(PlaybackActivity.EXTRA_CHANNEL_ID, movie.getChannelId());
                 getActivity().startActivity(intent);
             } else if (item instanceof String) {
                 if (((String) item).contains(getString(R.string.error_fragment))) {
@@ -555,24 +527,11 @@ public class MainFragment extends BrowseSupportFragment {
                 Row row) {
             if (item instanceof Movie) {
                 mBackgroundUri = ((Movie) item).getBackgroundImageUrl();
-                startBackgroundTimer();
+                scheduleBackgroundUpdate();
             }
         }
     }
 
-    private class UpdateBackgroundTask extends TimerTask {
-
-        @Override
-        public void run() {
-            mHandler.post(new Runnable() {
-                @Override
-                public void run() {
-                    updateBackground(mBackgroundUri);
-                }
-            });
-        }
-    }
-
     private class GridItemPresenter extends Presenter {
         @Override
         public ViewHolder onCreateViewHolder(ViewGroup parent) {
@@ -1,106 +1,102 @@
 package com.cadnative.firevisioniptv;
 
-import java.io.Serializable;
-
 /*
  * Movie class represents video entity with title, description, image thumbs and video url.
+ * It is a lightweight view onto one row of a ChannelStore; fields are read from the store's
+ * columns on demand, so keeping thousands of Movies around costs no extra strings.
  */
-public class Movie implements Serializable {
-    static final long serialVersionUID = 727566175075960653L;
-    private long id;
-    private String title;
-    private String description;
-    private String group;
-    private String language;
-
-    private String bgImageUrl;
-    private String cardImageUrl;
-    private String videoUrl;
-    private String studio;
+public class Movie {
+    private final ChannelStore store;
+    private final int position;
 
-    public Movie() {
+    Movie(ChannelStore store, int position) {
+        this.store = store;
+        this.position = position;
     }
 
-    public long getId() {
-        return id;
+    ChannelStore getStore() {
+        return store;
     }
 
-    public void setId(long id) {
-        this.id = id;
+    /**
+     * Position of this channel in its store
+     */
+    int getPosition() {
+        return position;
     }
 
-    public String getTitle() {
-        return title;
+    public long getId() {
+        return store.getMovieId(position);
     }
 
-    public void setTitle(String title) {
-        this.title = title;
+    public String getTitle() {
+        return store.getName(position);
     }
 
     public String getDescription() {
-        return description;
-    }
-
-    public void setDescription(String description) {
-        this.description = description;
+        return store.getName(position);
     }
 
     public String getGroup() {
-        return group;
-    }
-
-    public void setGroup(String group) {
-        this.group = group;
+        return store.getGroup(position);
     }
 
     public String getLanguage() {
-        return language;
-    }
-
-    public void setLanguage(String language) {
-        this.language = language;
+        return store.getLanguage(position);
     }
 
     public String getStudio() {
-        return studio;
+        return store.getChannelId(position);
     }
 
-    public void setStudio(String studio) {
-        this.studio = studio;
+    /**
+     * Server channel ID; shown as the studio
+     */
+    public String getChannelId() {
+        return store.getChannelId(position);
     }
 
     public String getVideoUrl() {
-        return videoUrl;
-    }
-
-    public void setVideoUrl(String videoUrl) {
-        this.videoUrl = videoUrl;
+        return store.getVideoUrl(position);
     }
 
     public String getBackgroundImageUrl() {
-        return bgImageUrl;
+        return store.getBackgroundImageUrl(position);
     }
 
-    public void setBackgroundImageUrl(String bgImageUrl) {
-        this.bgImageUrl = bgImageUrl;
+    public String getCardImageUrl() {
+        return store.getCardImageUrl(position);
     }
 
-    public String getCardImageUrl() {
-        return cardImageUrl;
+    /**
+     * Two Movies are equal when they show the same channel data, even from different stores
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Movie)) {
+            return false;
+        }
+        Movie other = (Movie) o;
+        return (store == other.store && position == other.position)
+                || store.sameRow(position, other.store, other.position);
     }
 
-    public void setCardImageUrl(String cardImageUrl) {
-        this.cardImageUrl = cardImageUrl;
+    @Override
+    public int hashCode() {
+        return Long.hashCode(getId());
     }
 
     @Override
     public String toString() {
         return "Movie{" +
-                "id=" + id +
-                ", title='" + title + '\'' +
-                ", videoUrl='" + videoUrl + '\'' +
-                ", backgroundImageUrl='" + bgImageUrl + '\'' +
-                ", cardImageUrl='" + cardImageUrl + '\'' +
+                "id=" + getId() +
+                ", title='" + getTitle() + '\'' +
+                ", videoUrl='" + getVideoUrl() + '\'' +
+                ", backgroundImageUrl='" + getBackgroundImageUrl() + '\'' +
+                ", cardImageUrl='" + getCardImageUrl() + '\'' +
                 '}';
     }
-}
\ No newline at end of file
+}
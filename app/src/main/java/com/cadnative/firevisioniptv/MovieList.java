@@ -5,19 +5,30 @@ import android.content.res.AssetManager;
 import android.util.Log;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.cadnative.firevisioniptv.api.ApiClient;
+import com.cadnative.firevisioniptv.api.SingleFlight;
 
 
 public final class MovieList {
 
     private static final String TAG = "MovieList";
-    static List<Movie> list;
     private static long count = 0;
-    private static boolean isLoadingFromServer = false;
+    private static final SingleFlight<String, MovieListCallback> LOADS = new SingleFlight<>();
+    private static final ExecutorService SNAPSHOT_EXECUTOR = Executors.newSingleThreadExecutor();
+    // Channel list key of the store in ChannelRepository; guarded by MovieList.class
+    private static String loadedKey;
+    private static final String[] BACKGROUND_URLS = {
+            "https://firebasestorage.googleapis.com/v0/b/firevisioniptv.appspot.com/o/bk1.jpg?alt=media&token=bc5dafeb-33a8-48d4-b283-6ff22bf3a7e5",
+            "https://firebasestorage.googleapis.com/v0/b/firevisioniptv.appspot.com/o/bk3.png?alt=media&token=bd37b51c-7e9b-4500-9b62-11c98603e9b3",
+            "https://firebasestorage.googleapis.com/v0/b/firevisioniptv.appspot.com/o/bk4.png?alt=media&token=30e5bfc3-f7b3-4d69-bdfd-71fa9ff9b789",
+    };
 
     public interface MovieListCallback {
         void onSuccess(List<Movie> movies);
@@ -30,61 +41,65 @@ public final class MovieList {
      * Load movies from server with fallback to local M3U
      */
     public static void loadMoviesFromServer(Context context, AssetManager assetManager, final MovieListCallback callback) {
-        if (isLoadingFromServer) {
-            Log.d(TAG, "Already loading from server, skipping duplicate request");
+        final String key = ApiClient.getChannelListKey(context);
+        if (!LOADS.join(key, callback)) {
+            Log.d(TAG, "Already loading from server, joining in-flight request");
             return;
         }
 
-        isLoadingFromServer = true;
-
+        final Context appContext = context.getApplicationContext();
         ApiClient.fetchChannelList(context, new ApiClient.ChannelListCallback() {
             @Override
             public void onSuccess(List<Channel> channels) {
-                isLoadingFromServer = false;
                 Log.d(TAG, "Successfully loaded " + channels.size() + " channels from server");
 
-                list = new ArrayList<>();
-                count = 0;
-
-                String bgImageUrl[] = {
-                        "https://firebasestorage.googleapis.com/v0/b/firevisioniptv.appspot.com/o/bk1.jpg?alt=media&token=bc5dafeb-33a8-48d4-b283-6ff22bf3a7e5",
-                        "https://firebasestorage.googleapis.com/v0/b/firevisioniptv.appspot.com/o/bk3.png?alt=media&token=bd37b51c-7e9b-4500-9b62-11c98603e9b3",
-                        "https://firebasestorage.googleapis.com/v0/b/firevisioniptv.appspot.com/o/bk4.png?alt=media&token=30e5bfc3-f7b3-4d69-bdfd-71fa9ff9b789",
-                };
+                List<Movie> movies;
+                synchronized (MovieList.class) {
+                    ChannelRepository repository = ChannelRepository.getInstance();
+                    repository.setStore(buildStore(channels));
+                    loadedKey = key;
+                    movies = repository.getMovies();
+                }
+                deliver(key, movies);
+            }
 
-                for (Channel channel : channels) {
-                    String name = channel.getChannelName();
-                    if (name == null || name.isEmpty()) {
-                        name = channel.getChannelId();
+            @Override
+            public void onNotModified() {
+                List<Movie> movies;
+                synchronized (MovieList.class) {
+                    ChannelRepository repository = ChannelRepository.getInstance();
+                    if (repository.isLoaded() && key.equals(loadedKey)) {
+                        // Already loaded, from the snapshot or an earlier fetch
+                        movies = repository.getMovies();
+                    } else {
+                        // Cold start that skipped the snapshot: decode it once
+                        List<Channel> channels = ApiClient.getCachedChannelList(appContext);
+                        if (channels == null) {
+                            movies = null;
+                        } else {
+                            repository.setStore(buildStore(channels));
+                            loadedKey = key;
+                            movies = repository.getMovies();
+                        }
                     }
-
-                    String cardImage = channel.getChannelImg();
-
-                    list.add(
-                            buildMovieInfo(
-                                    name,
-                                    name,
-                                    channel.getChannelId(),
-                                    channel.getChannelUrl(),
-                                    channel.getChannelGroup(),
-                                    channel.getChannelLanguage(),
-                                    cardImage,
-                                    bgImageUrl[new Random().nextInt(bgImageUrl.length)]));
                 }
-
-                if (callback != null) {
-                    callback.onSuccess(list);
+                if (movies == null) {
+                    onError("Cached channel list is no longer available");
+                    return;
                 }
+                Log.d(TAG, "Channel list not modified, keeping " + movies.size() + " channels");
+                deliver(key, movies);
             }
 
             @Override
             public void onError(String error) {
-                isLoadingFromServer = false;
                 Log.e(TAG, "Failed to load from server: " + error);
 
                 // No fallback - return empty list or error
-                if (callback != null) {
-                    callback.onError(error);
+                for (MovieListCallback waiting : LOADS.complete(key)) {
+                    if (waiting != null) {
+                        waiting.onError(error);
+                    }
                 }
             }
         });
@@ -92,25 +107,114 @@ public final class MovieList {
 
 
 
-    private static Movie buildMovieInfo(
-            String title,
-            String description,
-            String studio,
-            String videoUrl,
-            String group,
-            String language,
-            String cardImageUrl,
-            String backgroundImageUrl) {
-        Movie movie = new Movie();
-        movie.setId(count++);
-        movie.setTitle(title);
-        movie.setDescription(description);
-        movie.setGroup(group);
-        movie.setLanguage(language);
-        movie.setStudio(studio);
-        movie.setCardImageUrl(cardImageUrl);
-        movie.setBackgroundImageUrl(backgroundImageUrl);
-        movie.setVideoUrl(videoUrl);
-        return movie;
+    /**
+     * Index a loaded list and hand it to every caller waiting on the load
+     */
+    private static void deliver(String key, List<Movie> movies) {
+        // Index groups, languages and names once, here on the network thread;
+        // a list that is already indexed costs nothing here
+        ChannelFacetIndex.of(movies);
+        ChannelSearchIndex.of(ChannelStore.backing(movies));
+        ChannelFuzzyIndex.of(ChannelStore.backing(movies));
+
+        for (MovieListCallback waiting : LOADS.complete(key)) {
+            if (waiting != null) {
+                waiting.onSuccess(movies);
+            }
+        }
+    }
+
+    /**
+     * Every background a channel can have; there are only a few
+     */
+    public static List<String> getBackgroundUrls() {
+        return Arrays.asList(BACKGROUND_URLS);
+    }
+
+    /**
+     * Facet index of the currently loaded list, or null if nothing is loaded yet
+     */
+    public static ChannelFacetIndex getFacets() {
+        List<Movie> current = ChannelRepository.getInstance().getMovies();
+        return current != null ? ChannelFacetIndex.of(current) : null;
+    }
+
+    /**
+     * Load the channel list stored on this device by the last successful fetch.
+     * Lets the home screen paint immediately while {@link #loadMoviesFromServer}
+     * revalidates; reports an empty list if nothing is stored.
+     */
+    public static void loadMoviesFromSnapshot(Context context, final MovieListCallback callback) {
+        final Context appContext = context.getApplicationContext();
+        final String key = ApiClient.getChannelListKey(context);
+        SNAPSHOT_EXECUTOR.execute(() -> {
+            List<Channel> channels = ApiClient.getCachedChannelList(appContext);
+            if (channels == null) {
+                callback.onSuccess(new ArrayList<>());
+                return;
+            }
+
+            List<Movie> movies;
+            synchronized (MovieList.class) {
+                ChannelRepository repository = ChannelRepository.getInstance();
+                if (repository.isLoaded()) {
+                    // The network already won the race; nothing stale to show
+                    movies = repository.getMovies();
+                } else {
+                    repository.setStore(buildStore(channels));
+                    loadedKey = key;
+                    movies = repository.getMovies();
+                }
+            }
+            ChannelFacetIndex.of(movies);
+            ChannelSearchIndex.of(ChannelStore.backing(movies));
+            ChannelFuzzyIndex.of(ChannelStore.backing(movies));
+            callback.onSuccess(movies);
+        });
+    }
+
+    /**
+     * Build the store for a channel list. Every channel already loaded keeps its Movie ID
+     * and background, so cards and favorites stay stable across delta updates.
+     */
+    private static ChannelStore buildStore(List<Channel> channels) {
+        ChannelStore previous = ChannelRepository.getInstance().getStore();
+
+        Random random = new Random();
+
+        ChannelStore.Builder builder = new ChannelStore.Builder(channels.size());
+        for (Channel channel : channels) {
+            String name = channel.getChannelName();
+            if (name == null || name.isEmpty()) {
+                name = channel.getChannelId();
+            }
+
+            int existing = previous != null ? previous.indexOf(channel.getChannelId()) : -1;
+            long id;
+            String backgroundImageUrl;
+            if (existing >= 0) {
+                Movie movie = previous.get(existing);
+                id = movie.getId();
+                backgroundImageUrl = movie.getBackgroundImageUrl();
+            } else {
+                id = count++;
+                backgroundImageUrl = BACKGROUND_URLS[random.nextInt(BACKGROUND_URLS.length)];
+            }
+
+            builder.add(id, channel.getChannelId(), name, channel.getChannelUrl(),
+                    channel.getChannelImg(), channel.getChannelGroup(), channel.getChannelLanguage(),
+                    backgroundImageUrl);
+        }
+
+        ChannelStore store = builder.build();
+        Log.d(TAG, "Channel store: " + store.size() + " channels, ~"
+                + perChannel(store.estimateHeapBytes(), store.size()) + " bytes/channel (~"
+                + perChannel(ChannelStore.estimateObjectHeapBytes(channels), store.size())
+                + " as Channel + Movie objects)");
+        return store;
+    }
+
+    private static long perChannel(long bytes, int channels) {
+        return channels > 0 ? bytes / channels : 0;
     }
-}
\ No newline at end of file
+}
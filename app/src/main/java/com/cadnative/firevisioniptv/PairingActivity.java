@@ -27,11 +27,7 @@ import com.google.zxing.qrcode.QRCodeWriter;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -59,6 +55,8 @@ public class PairingActivity extends FragmentActivity {
     private Runnable pollRunnable;
     private int pollAttempts = 0;
     private boolean isPairing = false;
+    private Future<?> pairingRequest;
+    private Future<?> statusCheck;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -146,41 +144,26 @@ public class PairingActivity extends FragmentActivity {
         countdownTimer.setVisibility(View.GONE);
         retryButton.setVisibility(View.GONE);
         
-        new Thread(() -> {
-            try {
-                String baseUrl = SettingsActivity.getServerUrl(this);
-                URL url = new URL(baseUrl + "/api/v1/tv/pairing/request");
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("POST");
-                connection.setRequestProperty("Content-Type", "application/json");
-                connection.setDoOutput(true);
-                
-                // Send device info
-                JSONObject requestData = new JSONObject();
-                requestData.put("deviceName", Build.MODEL);
-                requestData.put("deviceModel", Build.MANUFACTURER + " " + Build.MODEL);
-                
-                OutputStream os = connection.getOutputStream();
-                os.write(requestData.toString().getBytes("UTF-8"));
-                os.close();
-                
-                int responseCode = connection.getResponseCode();
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    BufferedReader reader = new BufferedReader(
-                            new InputStreamReader(connection.getInputStream()));
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                    reader.close();
-                    
-                    JSONObject jsonResponse = new JSONObject(response.toString());
-                    if (jsonResponse.optBoolean("success", false)) {
-                        currentPin = jsonResponse.getString("pin");
-                        String expiresAtStr = jsonResponse.getString("expiresAt");
-                        expiresAt = parseISO8601(expiresAtStr);
-                        
+        pairingRequest = ApiClient.requestPairing(this, Build.MODEL, Build.MANUFACTURER + " " + Build.MODEL,
+                new ApiClient.JsonCallback() {
+                    @Override
+                    public void onSuccess(JSONObject jsonResponse) {
+                        if (!jsonResponse.optBoolean("success", false)) {
+                            showError("Failed to generate PIN: " +
+                                    jsonResponse.optString("error", "Unknown error"));
+                            return;
+                        }
+
+                        try {
+                            currentPin = jsonResponse.getString("pin");
+                            String expiresAtStr = jsonResponse.getString("expiresAt");
+                            expiresAt = parseISO8601(expiresAtStr);
+                        } catch (JSONException e) {
+                            Log.e(TAG, "Error requesting pairing", e);
+                            showError("Connection error: " + e.getMessage());
+                            return;
+                        }
+
                         runOnUiThread(() -> {
                             loadingSpinner.setVisibility(View.GONE);
                             pinDisplay.setText(currentPin);
@@ -189,20 +172,14 @@ public class PairingActivity extends FragmentActivity {
                             startPolling();
                             startCountdown();
                         });
-                    } else {
-                        showError("Failed to generate PIN: " + 
-                                jsonResponse.optString("error", "Unknown error"));
                     }
-                } else {
-                    showError("Server error: " + responseCode);
-                }
-                
-                connection.disconnect();
-            } catch (Exception e) {
-                Log.e(TAG, "Error requesting pairing", e);
-                showError("Connection error: " + e.getMessage());
-            }
-        }).start();
+
+                    @Override
+                    public void onError(String error) {
+                        Log.e(TAG, "Error requesting pairing: " + error);
+                        showError("Connection error: " + error);
+                    }
+                });
     }
     
     /**
@@ -232,43 +209,35 @@ public class PairingActivity extends FragmentActivity {
      * Check pairing status from server
      */
     private void checkPairingStatus() {
-        new Thread(() -> {
-            try {
-                String baseUrl = SettingsActivity.getServerUrl(this);
-                URL url = new URL(baseUrl + "/api/v1/tv/pairing/status/" + currentPin);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setRequestProperty("Accept", "application/json");
-                
-                int responseCode = connection.getResponseCode();
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    BufferedReader reader = new BufferedReader(
-                            new InputStreamReader(connection.getInputStream()));
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                    reader.close();
-                    
-                    JSONObject jsonResponse = new JSONObject(response.toString());
-                    boolean paired = jsonResponse.optBoolean("paired", false);
-                    String status = jsonResponse.optString("status", "unknown");
-                    
-                    if (paired && "completed".equals(status)) {
-                        String channelListCode = jsonResponse.getString("channelListCode");
-                        String username = jsonResponse.optString("username", "User");
-                        onPairingSuccess(channelListCode, username);
-                    } else if ("expired".equals(status)) {
-                        showError("PIN expired. Please generate a new one.");
+        if (statusCheck != null && !statusCheck.isDone()) {
+            // Previous check is still waiting on the server; don't pile up requests
+            return;
+        }
+
+        statusCheck = ApiClient.checkPairingStatus(this, currentPin, new ApiClient.JsonCallback() {
+            @Override
+            public void onSuccess(JSONObject jsonResponse) {
+                boolean paired = jsonResponse.optBoolean("paired", false);
+                String status = jsonResponse.optString("status", "unknown");
+
+                if (paired && "completed".equals(status)) {
+                    String channelListCode = jsonResponse.optString("channelListCode", null);
+                    if (channelListCode == null) {
+                        Log.e(TAG, "Pairing completed without a channel list code");
+                        return;
                     }
+                    String username = jsonResponse.optString("username", "User");
+                    onPairingSuccess(channelListCode, username);
+                } else if ("expired".equals(status)) {
+                    showError("PIN expired. Please generate a new one.");
                 }
-                
-                connection.disconnect();
-            } catch (Exception e) {
-                Log.e(TAG, "Error checking pairing status", e);
             }
-        }).start();
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Error checking pairing status: " + error);
+            }
+        });
     }
     
     /**
@@ -398,5 +367,11 @@ public class PairingActivity extends FragmentActivity {
         if (pollHandler != null && pollRunnable != null) {
             pollHandler.removeCallbacks(pollRunnable);
         }
+        if (pairingRequest != null) {
+            pairingRequest.cancel(true);
+        }
+        if (statusCheck != null) {
+            statusCheck.cancel(true);
+        }
     }
 }
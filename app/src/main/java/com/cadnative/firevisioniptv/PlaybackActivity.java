@@ -14,6 +14,8 @@ import androidx.fragment.app.FragmentActivity;
  * Enhanced with wake lock to prevent screensaver during playback.
  */
 public class PlaybackActivity extends FragmentActivity {
+    // Server channel ID of the channel to play; resolved through ChannelRepository
+    public static final String EXTRA_CHANNEL_ID = "channel_id";
 
     private PlaybackVideoFragment mPlaybackVideoFragment;
     private PowerManager.WakeLock mWakeLock;
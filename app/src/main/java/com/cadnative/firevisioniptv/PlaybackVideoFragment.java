@@ -2,6 +2,8 @@ package com.cadnative.firevisioniptv;
 
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.KeyEvent;
 import android.view.Window;
 import android.view.WindowManager;
@@ -14,21 +16,31 @@ import androidx.leanback.widget.PlaybackControlsRow;
 import java.util.List;
 
 public class PlaybackVideoFragment extends VideoSupportFragment {
+    private static final String TAG = "PlaybackVideoFragment";
 
     private ChannelPlaybackTransportControlGlue<MediaPlayerAdapter> mTransportControlGlue;
     private List<Movie> mChannels; // List of channels (movies in this case)
     private int mCurrentChannelIndex;
     private ChannelOverlayFragment mOverlayFragment;
+    // Channel being watched and when this session of it started, for usage stats
+    private String mWatchingChannelId;
+    private long mWatchStartedAt;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
-        final Movie movie = (Movie) getActivity().getIntent().getSerializableExtra(DetailsActivity.MOVIE);
-
-        // Get the list of channels (movies) and find the current one
-        mChannels = MovieList.list;
-        mCurrentChannelIndex = mChannels.indexOf(movie);
+        // Look the channel up by ID in the loaded list; the intent carries nothing else
+        String channelId = getActivity().getIntent().getStringExtra(PlaybackActivity.EXTRA_CHANNEL_ID);
+        ChannelRepository repository = ChannelRepository.getInstance();
+        mCurrentChannelIndex = repository.indexOf(channelId);
+        if (mCurrentChannelIndex < 0) {
+            Log.w(TAG, "Channel " + channelId + " is not loaded, nothing to play");
+            getActivity().finish();
+            return;
+        }
+        mChannels = repository.getMovies();
+        final Movie movie = mChannels.get(mCurrentChannelIndex);
 
         VideoSupportFragmentGlueHost glueHost = new VideoSupportFragmentGlueHost(PlaybackVideoFragment.this);
 
@@ -77,12 +89,29 @@ public class PlaybackVideoFragment extends VideoSupportFragment {
     }
 
     private void updateChannelInfo(Movie movie) {
+        endWatchSession();
+        UsageStats.getInstance(getContext()).recordPlay(movie.getChannelId());
+        startWatchSession(movie.getChannelId());
+
         mTransportControlGlue.setTitle(movie.getTitle());
         mTransportControlGlue.setSubtitle(movie.getDescription());
         mTransportControlGlue.getPlayerAdapter().setDataSource(Uri.parse(movie.getVideoUrl()));
         mTransportControlGlue.playWhenPrepared();
     }
 
+    private void startWatchSession(String channelId) {
+        mWatchingChannelId = channelId;
+        mWatchStartedAt = SystemClock.elapsedRealtime();
+    }
+
+    private void endWatchSession() {
+        if (mWatchingChannelId != null) {
+            UsageStats.getInstance(getContext()).recordWatch(mWatchingChannelId,
+                    SystemClock.elapsedRealtime() - mWatchStartedAt);
+            mWatchingChannelId = null;
+        }
+    }
+
     public void nextChannel() {
         mCurrentChannelIndex = (mCurrentChannelIndex + 1) % mChannels.size();
         updateChannelInfo(mChannels.get(mCurrentChannelIndex));
@@ -142,9 +171,19 @@ public class PlaybackVideoFragment extends VideoSupportFragment {
     }
 
 
+    @Override
+    public void onResume() {
+        super.onResume();
+        // Coming back to the same channel continues watching it, without counting a new play
+        if (mChannels != null && mWatchingChannelId == null) {
+            startWatchSession(mChannels.get(mCurrentChannelIndex).getChannelId());
+        }
+    }
+
     @Override
     public void onPause() {
         super.onPause();
+        endWatchSession();
         if (mTransportControlGlue != null) {
             mTransportControlGlue.pause();
         }
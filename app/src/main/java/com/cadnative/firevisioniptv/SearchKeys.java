@@ -0,0 +1,213 @@
+package com.cadnative.firevisioniptv;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Helper class to turn channel names and queries into search keys.
+ * Keys are computed once per channel when the indexes are built, so the
+ * search itself only compares chars.
+ *
+ * {@link #fold} removes case and Latin accents, so "Telé" and "tele" match.
+ * {@link #transliterate} spells Devanagari names in Latin letters, and
+ * {@link #loosen} evens out the ways people romanize them ("zee", "zi",
+ * "jee"), so a Latin query can find a Hindi name. Queries only go through
+ * fold and loosen, which work a char at a time: a longer query's key still
+ * contains the shorter one's, so search can narrow from the previous
+ * results while typing.
+ */
+final class SearchKeys {
+    private static final char DEVANAGARI_FIRST = '\u0900';
+    private static final char DEVANAGARI_LAST = '\u097F';
+    private static final char NUKTA = '\u093C';
+    private static final char VIRAMA = '\u094D';
+
+    // Consonants U+0915..U+0939 without their inherent vowel
+    private static final String[] CONSONANTS = {
+            "k", "kh", "g", "gh", "n", "ch", "chh", "j", "jh", "n",
+            "t", "th", "d", "dh", "n", "t", "th", "d", "dh", "n",
+            "n", "p", "ph", "b", "bh", "m", "y", "r", "r", "l",
+            "l", "l", "v", "sh", "sh", "s", "h"
+    };
+    // Independent vowels U+0904..U+0914
+    private static final String[] VOWELS = {
+            "e", "a", "aa", "i", "ii", "u", "uu", "ri", "li", "e",
+            "e", "e", "ai", "o", "o", "o", "au"
+    };
+    // Vowel signs U+093E..U+094C
+    private static final String[] VOWEL_SIGNS = {
+            "aa", "i", "ii", "u", "uu", "ri", "rii", "e", "e", "e",
+            "ai", "o", "o", "o", "au"
+    };
+
+    private SearchKeys() {
+    }
+
+    /**
+     * Trimmed, lower case, without Latin accents
+     */
+    static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String trimmed = text.trim();
+        if (isPlainAscii(trimmed)) {
+            return trimmed.toLowerCase(Locale.ROOT);
+        }
+        String decomposed = Normalizer.normalize(trimmed, Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (c >= '\u0300' && c <= '\u036F') {
+                continue; // accents; marks of other scripts are part of the letter
+            }
+            switch (c) {
+                case '\u00DF': out.append("ss"); break;
+                case '\u00E6': case '\u00C6': out.append("ae"); break;
+                case '\u0153': case '\u0152': out.append("oe"); break;
+                case '\u00F8': case '\u00D8': out.append('o'); break;
+                case '\u0142': case '\u0141': out.append('l'); break;
+                case '\u0111': case '\u0110': out.append('d'); break;
+                case '\u0131': out.append('i'); break;
+                default: out.append(c);
+            }
+        }
+        return out.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Latin spelling of the Devanagari in folded text, loosened,
+     * or null if there is none
+     */
+    static String transliterate(String folded) {
+        if (!hasDevanagari(folded)) {
+            return null;
+        }
+        StringBuilder out = new StringBuilder(folded.length() * 2);
+        String pending = null;      // consonant still waiting for its vowel
+        int wordStart = 0;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (c >= '\u0915' && c <= '\u0939') {
+                flush(out, pending, false);
+                pending = CONSONANTS[c - '\u0915'];
+            } else if (c == NUKTA && pending != null) {
+                pending = withNukta(pending);
+            } else if (c == VIRAMA && pending != null) {
+                out.append(pending);
+                pending = null;
+            } else if (c >= '\u093E' && c <= '\u094C') {
+                flush(out, pending, true);
+                out.append(VOWEL_SIGNS[c - '\u093E']);
+                pending = null;
+            } else if (c >= '\u0904' && c <= '\u0914') {
+                flush(out, pending, false);
+                out.append(VOWELS[c - '\u0904']);
+                pending = null;
+            } else if (c == '\u0901' || c == '\u0902') {
+                flush(out, pending, false);
+                out.append('n');
+                pending = null;
+            } else if (c == '\u0903') {
+                flush(out, pending, false);
+                out.append('h');
+                pending = null;
+            } else if (c >= '\u0966' && c <= '\u096F') {
+                flush(out, pending, false);
+                out.append((char) ('0' + (c - '\u0966')));
+                pending = null;
+            } else if (c == '\u0950') {
+                flush(out, pending, false);
+                out.append("om");
+                pending = null;
+            } else if (c >= DEVANAGARI_FIRST && c <= DEVANAGARI_LAST) {
+                // Danda, avagraha and the rest carry no sound
+                flush(out, pending, false);
+                pending = null;
+                if (c == '\u0964' || c == '\u0965') {
+                    out.append(' ');
+                    wordStart = out.length();
+                }
+            } else {
+                // Hindi drops the last inherent vowel of a word: "समाचार" is "samachar"
+                flush(out, pending, out.length() > wordStart);
+                pending = null;
+                out.append(c);
+                if (!Character.isLetterOrDigit(c)) {
+                    wordStart = out.length();
+                }
+            }
+        }
+        flush(out, pending, out.length() > wordStart);
+        return loosen(out.toString());
+    }
+
+    /**
+     * Append a waiting consonant, with its inherent vowel unless {@code bare}
+     */
+    private static void flush(StringBuilder out, String consonant, boolean bare) {
+        if (consonant != null) {
+            out.append(consonant);
+            if (!bare) {
+                out.append('a');
+            }
+        }
+    }
+
+    /**
+     * Consonants a nukta turns into sounds borrowed from Persian and English
+     */
+    private static String withNukta(String consonant) {
+        switch (consonant) {
+            case "j": return "z";
+            case "ph": return "f";
+            case "d": return "r";
+            case "dh": return "rh";
+            default: return consonant;
+        }
+    }
+
+    /**
+     * Merge spellings romanization mixes up: vowel length, e/i, o/u, w/v, z/j, q/k.
+     * Maps each char on its own and then collapses repeats, so containment survives.
+     */
+    static String loosen(String folded) {
+        StringBuilder out = new StringBuilder(folded.length());
+        char last = 0;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            switch (c) {
+                case 'e': c = 'i'; break;
+                case 'o': c = 'u'; break;
+                case 'w': c = 'v'; break;
+                case 'z': c = 'j'; break;
+                case 'q': c = 'k'; break;
+                default: break;
+            }
+            if (c != last) {
+                out.append(c);
+                last = c;
+            }
+        }
+        return out.toString();
+    }
+
+    static boolean hasDevanagari(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= DEVANAGARI_FIRST && c <= DEVANAGARI_LAST) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPlainAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
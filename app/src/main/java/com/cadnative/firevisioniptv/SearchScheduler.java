@@ -0,0 +1,140 @@
+package com.cadnative.firevisioniptv;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs as-you-type searches off the main thread, latest query only.
+ * Input is debounced, and every query gets a generation number. Starting a
+ * new query supersedes the older one: if it has not started it is skipped, if
+ * it is running its cancellation check turns true so it can stop early, and
+ * if it finished its results are dropped instead of published. Only the
+ * latest query ever reaches the screen. Latency from dispatch to publish is
+ * recorded per query.
+ *
+ * All methods except the search itself are called on the main thread.
+ */
+public final class SearchScheduler {
+    private static final String TAG = "SearchScheduler";
+
+    /**
+     * The search to run for a query, off the main thread
+     */
+    public interface Search {
+        /**
+         * Search for a query and return the work that shows its results, to be run on the
+         * main thread; return null if {@code cancelled} turned true before finishing
+         */
+        Runnable run(String query, BooleanSupplier cancelled);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Executor executor;
+    private final long debounceMs;
+    private final Search search;
+    private final AtomicLong generation = new AtomicLong();
+    private Runnable pendingDispatch;
+
+    // Main thread only
+    private int completedCount;
+    private int supersededCount;
+    private long totalLatencyMs;
+    private long maxLatencyMs;
+
+    public SearchScheduler(Executor executor, long debounceMs, Search search) {
+        this.executor = executor;
+        this.debounceMs = debounceMs;
+        this.search = search;
+    }
+
+    /**
+     * Search for a query once input has been quiet for the debounce delay
+     */
+    public void submit(String query) {
+        cancelPending();
+        generation.incrementAndGet(); // anything still running is out of date already
+        pendingDispatch = () -> dispatch(query);
+        handler.postDelayed(pendingDispatch, debounceMs);
+    }
+
+    /**
+     * Search for a query right away, e.g. when the user presses search
+     */
+    public void submitNow(String query) {
+        cancelPending();
+        dispatch(query);
+    }
+
+    /**
+     * Drop the pending and running queries without starting a new one
+     */
+    public void cancel() {
+        cancelPending();
+        generation.incrementAndGet();
+    }
+
+    private void cancelPending() {
+        if (pendingDispatch != null) {
+            handler.removeCallbacks(pendingDispatch);
+            pendingDispatch = null;
+        }
+    }
+
+    private void dispatch(String query) {
+        pendingDispatch = null;
+        final long id = generation.incrementAndGet();
+        final long dispatchedAt = SystemClock.elapsedRealtime();
+        final BooleanSupplier superseded = () -> generation.get() != id;
+
+        executor.execute(() -> {
+            if (superseded.getAsBoolean()) {
+                handler.post(() -> recordSuperseded());
+                return;
+            }
+            Runnable publish = search.run(query, superseded);
+            handler.post(() -> {
+                if (publish == null || superseded.getAsBoolean()) {
+                    recordSuperseded();
+                    return;
+                }
+                publish.run();
+                recordLatency(query, SystemClock.elapsedRealtime() - dispatchedAt);
+            });
+        });
+    }
+
+    private void recordSuperseded() {
+        supersededCount++;
+    }
+
+    private void recordLatency(String query, long latencyMs) {
+        completedCount++;
+        totalLatencyMs += latencyMs;
+        maxLatencyMs = Math.max(maxLatencyMs, latencyMs);
+        Log.d(TAG, "Search \"" + query + "\" took " + latencyMs + "ms (avg "
+                + getAverageLatencyMs() + "ms, max " + maxLatencyMs + "ms, "
+                + supersededCount + " superseded)");
+    }
+
+    public int getCompletedCount() {
+        return completedCount;
+    }
+
+    public int getSupersededCount() {
+        return supersededCount;
+    }
+
+    public long getAverageLatencyMs() {
+        return completedCount > 0 ? totalLatencyMs / completedCount : 0;
+    }
+
+    public long getMaxLatencyMs() {
+        return maxLatencyMs;
+    }
+}
@@ -8,6 +8,7 @@ import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.os.Build;
 import android.os.Bundle;
+import android.text.TextUtils;
 import android.view.View;
 import android.widget.EditText;
 import android.widget.ImageView;
@@ -22,6 +23,11 @@ import com.google.zxing.WriterException;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Settings Activity for server configuration
  */
@@ -32,6 +38,9 @@ public class SettingsActivity extends FragmentActivity {
     private static final String TV_CODE_KEY = "tv_code";
     private static final String AUTOLOAD_CHANNEL_ID_KEY = "autoload_channel_id";
     private static final String AUTOLOAD_CHANNEL_NAME_KEY = "autoload_channel_name";
+    private static final String BROWSE_MODE_KEY = "browse_mode";
+    public static final String BROWSE_MODE_CHUNKED = "chunked";
+    public static final String BROWSE_MODE_CATEGORY_ROWS = "category_rows";
     private static final String DEFAULT_SERVER_URL = "https://tv.cadnative.com";
     private static final String DEFAULT_TV_CODE = "5T6FEP";
 
@@ -46,6 +55,8 @@ public class SettingsActivity extends FragmentActivity {
     private View pairDeviceButton;
     private View clearAutoloadButton;
     private View checkUpdatesButton;
+    private View browseModeButton;
+    private TextView browseModeInfo;
     private UpdateManager updateManager;
 
     @Override
@@ -67,6 +78,8 @@ public class SettingsActivity extends FragmentActivity {
         pairDeviceButton = findViewById(R.id.pair_device_button);
         clearAutoloadButton = findViewById(R.id.clear_autoload_button);
         checkUpdatesButton = findViewById(R.id.check_updates_button);
+        browseModeButton = findViewById(R.id.browse_mode_button);
+        browseModeInfo = findViewById(R.id.browse_mode_info);
 
         // Initialize UpdateManager
         updateManager = new UpdateManager(this);
@@ -83,6 +96,9 @@ public class SettingsActivity extends FragmentActivity {
         // Load auto-load channel info
         loadAutoloadChannelInfo();
 
+        // Load browse layout
+        loadBrowseModeInfo();
+
         // Load app version info
         loadAppVersionInfo();
 
@@ -101,6 +117,9 @@ public class SettingsActivity extends FragmentActivity {
         // Setup clear auto-load button
         clearAutoloadButton.setOnClickListener(v -> clearAutoloadChannel());
 
+        // Setup browse layout button
+        browseModeButton.setOnClickListener(v -> toggleBrowseMode());
+
         // Setup check for updates button
         checkUpdatesButton.setOnClickListener(v -> checkForUpdates());
     }
@@ -156,11 +175,15 @@ public class SettingsActivity extends FragmentActivity {
             return;
         }
 
-        // Validate URL format (basic validation)
-        if (!url.startsWith("http://") && !url.startsWith("https://")) {
-            Toast.makeText(this, "URL must start with http:// or https://", Toast.LENGTH_SHORT).show();
-            return;
+        // Validate URL format (basic validation); mirrors are separated by commas
+        List<String> urls = parseServerUrls(url);
+        for (String serverUrl : urls) {
+            if (!serverUrl.startsWith("http://") && !serverUrl.startsWith("https://")) {
+                Toast.makeText(this, "URL must start with http:// or https://", Toast.LENGTH_SHORT).show();
+                return;
+            }
         }
+        url = TextUtils.join(", ", urls);
 
         // Save to SharedPreferences
         SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
@@ -200,6 +223,22 @@ public class SettingsActivity extends FragmentActivity {
         Toast.makeText(this, "Auto-load channel cleared", Toast.LENGTH_SHORT).show();
     }
 
+    private void loadBrowseModeInfo() {
+        if (BROWSE_MODE_CATEGORY_ROWS.equals(getBrowseMode(this))) {
+            browseModeInfo.setText("One scrolling row per category");
+        } else {
+            browseModeInfo.setText("Rows of 6 channels");
+        }
+    }
+
+    private void toggleBrowseMode() {
+        String mode = BROWSE_MODE_CATEGORY_ROWS.equals(getBrowseMode(this))
+                ? BROWSE_MODE_CHUNKED : BROWSE_MODE_CATEGORY_ROWS;
+        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        prefs.edit().putString(BROWSE_MODE_KEY, mode).apply();
+        loadBrowseModeInfo();
+    }
+
     /**
      * Load and display app version information
      */
@@ -242,8 +281,7 @@ public class SettingsActivity extends FragmentActivity {
      */
     private void generateQRCode() {
         try {
-            SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
-            String serverUrl = prefs.getString(SERVER_URL_KEY, DEFAULT_SERVER_URL);
+            String serverUrl = getServerUrl(this);
 
             // Create registration URL for QR code
             String registrationUrl = serverUrl + "/user/register.html";
@@ -273,11 +311,36 @@ public class SettingsActivity extends FragmentActivity {
     }
 
     /**
-     * Static method to get server URL from SharedPreferences
+     * Static method to get the primary server URL from SharedPreferences
      */
     public static String getServerUrl(android.content.Context context) {
+        List<String> urls = getServerUrls(context);
+        return urls.isEmpty() ? DEFAULT_SERVER_URL : urls.get(0);
+    }
+
+    /**
+     * Static method to get all configured server URLs (the primary and its mirrors)
+     */
+    public static List<String> getServerUrls(android.content.Context context) {
         SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
-        return prefs.getString(SERVER_URL_KEY, DEFAULT_SERVER_URL);
+        return parseServerUrls(prefs.getString(SERVER_URL_KEY, DEFAULT_SERVER_URL));
+    }
+
+    /**
+     * Split a comma-separated server list, dropping blanks, duplicates and trailing slashes
+     */
+    private static List<String> parseServerUrls(String value) {
+        Set<String> urls = new LinkedHashSet<>();
+        for (String part : value.split(",")) {
+            String url = part.trim();
+            while (url.endsWith("/")) {
+                url = url.substring(0, url.length() - 1);
+            }
+            if (!url.isEmpty()) {
+                urls.add(url);
+            }
+        }
+        return new ArrayList<>(urls);
     }
 
     /**
@@ -306,4 +369,12 @@ public class SettingsActivity extends FragmentActivity {
         SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
         return prefs.getString(AUTOLOAD_CHANNEL_ID_KEY, "");
     }
+
+    /**
+     * Static method to get how the home screen lays out each category
+     */
+    public static String getBrowseMode(android.content.Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        return prefs.getString(BROWSE_MODE_KEY, BROWSE_MODE_CHUNKED);
+    }
 }
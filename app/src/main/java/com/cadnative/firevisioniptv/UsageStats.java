@@ -0,0 +1,458 @@
+package com.cadnative.firevisioniptv;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+
+/**
+ * Local viewing history and usage statistics, keyed by server channel ID.
+ * Every play and watch session is appended to a small binary log, so recording
+ * costs one short write instead of rewriting everything. The log is replayed
+ * into per-channel totals on startup and periodically compacted to one record
+ * per channel. Popularity decays exponentially with a one-week half-life, so
+ * channels watched a lot long ago gradually give way to current habits.
+ *
+ * Popular and continue-watching rows are top-K queries served by a bounded
+ * heap over the channels that have any usage at all.
+ */
+public class UsageStats {
+    private static final String TAG = "UsageStats";
+    private static final String LOG_FILE_NAME = "usage.log";
+    private static final int MAGIC = 0x46565553; // "FVUS"
+    private static final int VERSION = 1;
+
+    private static final byte RECORD_PLAY = 1;
+    private static final byte RECORD_WATCH = 2;
+    private static final byte RECORD_TOTALS = 3;
+    private static final byte RECORD_SEARCH_CLICK = 4;
+
+    private static final double HALF_LIFE_MS = 7L * 24 * 60 * 60 * 1000;
+    // Score added by starting a channel, and per minute of watching it
+    private static final double PLAY_WEIGHT = 1.0;
+    private static final double WATCH_WEIGHT_PER_MINUTE = 0.1;
+    // Score added by opening a channel from search results, on top of its play
+    private static final double SEARCH_CLICK_WEIGHT = 0.5;
+    // Sessions at least this long make a channel worth continuing
+    private static final long CONTINUE_WATCHING_MIN_MS = 2 * 60 * 1000;
+    private static final int COMPACT_EVERY = 256;
+    // Channels with nearly no score left and no play in this long are dropped on compaction
+    private static final long FORGET_AFTER_MS = 90L * 24 * 60 * 60 * 1000;
+    private static final double FORGET_BELOW_SCORE = 0.01;
+
+    private static UsageStats instance;
+
+    private final File logFile;
+    private final LongSupplier clock;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // Guarded by this; only changed on the executor, so changes keep log order
+    private final Map<String, Totals> totals = new HashMap<>();
+    private int appendedSinceCompaction;
+
+    /**
+     * Aggregated usage of one channel
+     */
+    private static final class Totals {
+        double score;       // decayed popularity as of scoreAt
+        long scoreAt;
+        long lastPlayedAt;
+        long lastSessionMs; // length of the latest watch session
+        long totalWatchMs;
+
+        double scoreAt(long now) {
+            return score * Math.pow(0.5, (now - scoreAt) / HALF_LIFE_MS);
+        }
+
+        Totals copy() {
+            Totals copy = new Totals();
+            copy.score = score;
+            copy.scoreAt = scoreAt;
+            copy.lastPlayedAt = lastPlayedAt;
+            copy.lastSessionMs = lastSessionMs;
+            copy.totalWatchMs = totalWatchMs;
+            return copy;
+        }
+
+        void addScore(double amount, long at) {
+            score = scoreAt(at) + amount;
+            scoreAt = at;
+        }
+    }
+
+    private UsageStats(Context context) {
+        this(new File(context.getApplicationContext().getFilesDir(), LOG_FILE_NAME), System::currentTimeMillis);
+    }
+
+    // Package-private so tests can use their own log file and clock
+    UsageStats(File logFile, LongSupplier clock) {
+        this.logFile = logFile;
+        this.clock = clock;
+        executor.execute(this::load);
+    }
+
+    public static synchronized UsageStats getInstance(Context context) {
+        if (instance == null) {
+            instance = new UsageStats(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Record that playback of a channel started
+     */
+    public void recordPlay(String channelId) {
+        if (channelId == null) {
+            return;
+        }
+        record(RECORD_PLAY, channelId, clock.getAsLong(), 0);
+    }
+
+    /**
+     * Record that a channel was opened from search results
+     */
+    public void recordSearchClick(String channelId) {
+        if (channelId == null) {
+            return;
+        }
+        record(RECORD_SEARCH_CLICK, channelId, clock.getAsLong(), 0);
+    }
+
+    /**
+     * Record a finished watch session of a channel
+     */
+    public void recordWatch(String channelId, long durationMs) {
+        if (channelId == null || durationMs <= 0) {
+            return;
+        }
+        record(RECORD_WATCH, channelId, clock.getAsLong(), durationMs);
+    }
+
+    /**
+     * Channel IDs with the highest decayed popularity, most popular first
+     */
+    public List<String> getPopularChannels(int limit) {
+        final long now = clock.getAsLong();
+        return top(limit, (a, b) -> Double.compare(a.getValue().scoreAt(now), b.getValue().scoreAt(now)));
+    }
+
+    /**
+     * Decayed popularity of one channel, 0 if it was never played
+     */
+    public synchronized double getPopularity(String channelId) {
+        Totals channel = totals.get(channelId);
+        return channel != null ? channel.scoreAt(clock.getAsLong()) : 0;
+    }
+
+    /**
+     * Decayed popularity of every channel in a store, by position, 0 for those never played.
+     * Walks only the channels with any usage, so a ranking can read scores without a lookup
+     * or lock per channel.
+     */
+    public synchronized double[] getPopularity(ChannelStore store) {
+        double[] popularity = new double[store.size()];
+        long now = clock.getAsLong();
+        for (Map.Entry<String, Totals> entry : totals.entrySet()) {
+            int position = store.indexOf(entry.getKey());
+            if (position >= 0) {
+                popularity[position] = entry.getValue().scoreAt(now);
+            }
+        }
+        return popularity;
+    }
+
+    /**
+     * Channel IDs whose latest session was long enough to return to, latest first
+     */
+    public synchronized List<String> getContinueWatching(int limit) {
+        Map<String, Totals> watched = new HashMap<>();
+        for (Map.Entry<String, Totals> entry : totals.entrySet()) {
+            if (entry.getValue().lastSessionMs >= CONTINUE_WATCHING_MIN_MS) {
+                watched.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return top(watched, limit, (a, b) -> Long.compare(a.getValue().lastPlayedAt, b.getValue().lastPlayedAt));
+    }
+
+    /**
+     * Wait until every event recorded so far is applied and written
+     */
+    void awaitIdle() throws InterruptedException {
+        try {
+            executor.submit(() -> { }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private synchronized List<String> top(int limit, Comparator<Map.Entry<String, Totals>> order) {
+        return top(totals, limit, order);
+    }
+
+    /**
+     * Keep the best {@code limit} entries in a min-heap of that size, then drain it best first
+     */
+    private static List<String> top(Map<String, Totals> entries, int limit,
+                                    Comparator<Map.Entry<String, Totals>> order) {
+        if (limit <= 0 || entries.isEmpty()) {
+            return new ArrayList<>();
+        }
+        PriorityQueue<Map.Entry<String, Totals>> heap = new PriorityQueue<>(limit + 1, order);
+        for (Map.Entry<String, Totals> entry : entries.entrySet()) {
+            heap.offer(entry);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+        List<String> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(heap.poll().getKey());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private Totals totalsFor(String channelId) {
+        Totals channel = totals.get(channelId);
+        if (channel == null) {
+            channel = new Totals();
+            totals.put(channelId, channel);
+        }
+        return channel;
+    }
+
+    private void applyPlay(String channelId, long at) {
+        Totals channel = totalsFor(channelId);
+        channel.addScore(PLAY_WEIGHT, at);
+        channel.lastPlayedAt = Math.max(channel.lastPlayedAt, at);
+    }
+
+    private void applySearchClick(String channelId, long at) {
+        totalsFor(channelId).addScore(SEARCH_CLICK_WEIGHT, at);
+    }
+
+    private void applyWatch(String channelId, long at, long durationMs) {
+        Totals channel = totalsFor(channelId);
+        channel.addScore(WATCH_WEIGHT_PER_MINUTE * durationMs / 60000.0, at);
+        channel.lastSessionMs = durationMs;
+        channel.totalWatchMs += durationMs;
+    }
+
+    /**
+     * Apply an event to the totals and append it to the log, both on the executor
+     */
+    private void record(byte type, String channelId, long at, long durationMs) {
+        executor.execute(() -> {
+            synchronized (this) {
+                if (type == RECORD_PLAY) {
+                    applyPlay(channelId, at);
+                } else if (type == RECORD_SEARCH_CLICK) {
+                    applySearchClick(channelId, at);
+                } else {
+                    applyWatch(channelId, at, durationMs);
+                }
+            }
+
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(logFile, true)))) {
+                if (logFile.length() == 0) {
+                    writeHeader(out);
+                }
+                out.writeByte(type);
+                out.writeUTF(channelId);
+                out.writeLong(at);
+                out.writeLong(durationMs);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not append usage event", e);
+                return;
+            }
+
+            boolean compact;
+            synchronized (this) {
+                compact = ++appendedSinceCompaction >= COMPACT_EVERY;
+            }
+            if (compact) {
+                compact();
+            }
+        });
+    }
+
+    /**
+     * Replay the log into per-channel totals. Runs on the executor before any event.
+     */
+    private void load() {
+        if (!logFile.exists()) {
+            return;
+        }
+        int records = 0;
+        boolean torn = false;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(logFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unsupported usage log " + logFile);
+            }
+            synchronized (this) {
+                int type;
+                while ((type = in.read()) >= 0) {
+                    try {
+                        readRecord((byte) type, in);
+                    } catch (EOFException e) {
+                        // A final record cut short by a crash is dropped
+                        torn = true;
+                        break;
+                    }
+                    records++;
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable usage log", e);
+            synchronized (this) {
+                totals.clear();
+            }
+            if (!logFile.delete()) {
+                Log.w(TAG, "Could not delete " + logFile);
+            }
+            return;
+        }
+
+        Log.d(TAG, "Loaded usage of " + totals.size() + " channels from " + records + " records");
+        // Rewrite a torn log too, so new events are not appended after the partial record
+        if (torn || records > totals.size() + COMPACT_EVERY) {
+            compact();
+        }
+    }
+
+    /**
+     * Read the rest of one record, after its type, into totals. Caller holds the lock.
+     */
+    private void readRecord(byte type, DataInputStream in) throws IOException {
+        String channelId = in.readUTF();
+        switch (type) {
+            case RECORD_PLAY: {
+                // Read the whole record before applying it, so a torn one changes nothing
+                long at = in.readLong();
+                in.readLong();
+                applyPlay(channelId, at);
+                break;
+            }
+            case RECORD_SEARCH_CLICK: {
+                long at = in.readLong();
+                in.readLong();
+                applySearchClick(channelId, at);
+                break;
+            }
+            case RECORD_WATCH: {
+                long at = in.readLong();
+                applyWatch(channelId, at, in.readLong());
+                break;
+            }
+            case RECORD_TOTALS: {
+                Totals channel = new Totals();
+                channel.score = in.readDouble();
+                channel.scoreAt = in.readLong();
+                channel.lastPlayedAt = in.readLong();
+                channel.lastSessionMs = in.readLong();
+                channel.totalWatchMs = in.readLong();
+                merge(channelId, channel);
+                break;
+            }
+            default:
+                throw new IOException("Unknown usage record type " + type);
+        }
+    }
+
+    /**
+     * Add one channel's totals to those already accumulated. Caller holds the lock.
+     */
+    private void merge(String channelId, Totals other) {
+        Totals channel = totals.get(channelId);
+        if (channel == null) {
+            totals.put(channelId, other);
+            return;
+        }
+        long at = Math.max(channel.scoreAt, other.scoreAt);
+        channel.score = channel.scoreAt(at) + other.scoreAt(at);
+        channel.scoreAt = at;
+        if (other.lastPlayedAt > channel.lastPlayedAt) {
+            channel.lastPlayedAt = other.lastPlayedAt;
+            channel.lastSessionMs = other.lastSessionMs;
+        }
+        channel.totalWatchMs += other.totalWatchMs;
+    }
+
+    /**
+     * Rewrite the log as one totals record per channel, dropping channels not used in a
+     * long time. Written to a temp file and renamed, so a crash never loses the history.
+     */
+    private void compact() {
+        long now = clock.getAsLong();
+        Map<String, Totals> kept = new HashMap<>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, Totals>> entries = totals.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, Totals> entry = entries.next();
+                Totals channel = entry.getValue();
+                if (channel.scoreAt(now) < FORGET_BELOW_SCORE
+                        && now - channel.lastPlayedAt > FORGET_AFTER_MS) {
+                    entries.remove();
+                } else {
+                    kept.put(entry.getKey(), channel.copy());
+                }
+            }
+        }
+
+        // Only the executor changes totals, so nothing is missed while writing outside the lock
+        File tmp = new File(logFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            writeHeader(out);
+            for (Map.Entry<String, Totals> entry : kept.entrySet()) {
+                Totals channel = entry.getValue();
+                out.writeByte(RECORD_TOTALS);
+                out.writeUTF(entry.getKey());
+                out.writeDouble(channel.score);
+                out.writeLong(channel.scoreAt);
+                out.writeLong(channel.lastPlayedAt);
+                out.writeLong(channel.lastSessionMs);
+                out.writeLong(channel.totalWatchMs);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not compact usage log", e);
+            return;
+        }
+
+        if (tmp.renameTo(logFile)) {
+            synchronized (this) {
+                appendedSinceCompaction = 0;
+            }
+            Log.d(TAG, "Compacted usage log to " + kept.size() + " channels");
+        } else {
+            Log.w(TAG, "Could not rename " + tmp + " to " + logFile);
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+}
@@ -68,8 +68,8 @@ public class VideoDetailsFragment extends DetailsSupportFragment {
 
         mDetailsBackground = new DetailsSupportFragmentBackgroundController(this);
 
-        mSelectedMovie =
-                (Movie) getActivity().getIntent().getSerializableExtra(DetailsActivity.MOVIE);
+        mSelectedMovie = ChannelRepository.getInstance()
+                .getById(getActivity().getIntent().getStringExtra(DetailsActivity.CHANNEL_ID));
         if (mSelectedMovie != null) {
             mPresenterSelector = new ClassPresenterSelector();
             mAdapter = new ArrayObjectAdapter(mPresenterSelector);
@@ -165,7 +165,7 @@ public class VideoDetailsFragment extends DetailsSupportFragment {
             public void onActionClicked(Action action) {
                 if (action.getId() == ACTION_WATCH_TRAILER) {
                     Intent intent = new Intent(getActivity(), PlaybackActivity.class);
-                    intent.putExtra(DetailsActivity.MOVIE, mSelectedMovie);
+                    intent.putExtra(PlaybackActivity.EXTRA_CHANNEL_ID, mSelectedMovie.getChannelId());
                     startActivity(intent);
                 } else {
                     Toast.makeText(getActivity(), action.toString(), Toast.LENGTH_SHORT).show();
@@ -206,7 +206,7 @@ public class VideoDetailsFragment extends DetailsSupportFragment {
             if (item instanceof Movie) {
                 Log.d(TAG, "Item: " + item.toString());
                 Intent intent = new Intent(getActivity(), DetailsActivity.class);
-                intent.putExtra(getResources().getString(R.string.movie), mSelectedMovie);
+                intent.putExtra(DetailsActivity.CHANNEL_ID, ((Movie) item).getChannelId());
 
                 Bundle bundle =
                         ActivityOptionsCompat.makeSceneTransitionAnimation(
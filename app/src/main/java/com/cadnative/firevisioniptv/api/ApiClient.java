@@ -1,18 +1,21 @@
 package com.cadnative.firevisioniptv.api;
 
 import android.content.Context;
+import android.text.TextUtils;
 import android.util.Log;
 
-import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Future;
 
 import com.cadnative.firevisioniptv.Channel;
 import com.cadnative.firevisioniptv.SettingsActivity;
@@ -21,20 +24,56 @@ public class ApiClient {
     private static final String TAG = "ApiClient";
     private static final String DEFAULT_BASE_URL = "https://tv.cadnative.com";
     private static final int TIMEOUT = 30000; // 30 seconds
+    private static final int PAIRING_TIMEOUT = 10000; // 10 seconds, well inside the PIN lifetime
+
+    private static final SingleFlight<String, ChannelListCallback> CHANNEL_LIST_REQUESTS = new SingleFlight<>();
+
+    /**
+     * Get the server URLs from settings, or use default
+     */
+    private static List<String> getServerUrls(Context context) {
+        List<String> savedUrls = SettingsActivity.getServerUrls(context);
+        if (savedUrls != null && !savedUrls.isEmpty()) {
+            return savedUrls;
+        }
+        return Collections.singletonList(DEFAULT_BASE_URL);
+    }
 
     /**
-     * Get the base URL from settings, or use default
+     * Endpoint selector for the configured servers; probes them when the list changes
      */
-    private static String getBaseUrl(Context context) {
-        String savedUrl = SettingsActivity.getServerUrl(context);
-        if (savedUrl != null && !savedUrl.isEmpty()) {
-            return savedUrl;
+    private static EndpointSelector getEndpoints(Context context) {
+        EndpointSelector endpoints = EndpointSelector.getInstance();
+        if (endpoints.setEndpoints(getServerUrls(context))) {
+            endpoints.probe();
         }
-        return DEFAULT_BASE_URL;
+        return endpoints;
+    }
+
+    /**
+     * Measure every configured server in parallel so the first requests go to the fastest one
+     */
+    public static void probeEndpoints(Context context) {
+        EndpointSelector endpoints = EndpointSelector.getInstance();
+        endpoints.setEndpoints(getServerUrls(context));
+        endpoints.probe();
     }
 
     public interface ChannelListCallback {
         void onSuccess(List<Channel> channels);
+
+        /**
+         * The server answered 304: the list loaded last time is still current.
+         * Nothing was downloaded or decoded; {@link #getCachedChannelList} has it
+         * if the caller does not hold it any more.
+         */
+        void onNotModified();
+
+        void onError(String error);
+    }
+
+    public interface JsonCallback {
+        void onSuccess(JSONObject response);
         void onError(String error);
     }
 
@@ -68,144 +107,227 @@ public class ApiClient {
     }
 
     /**
-     * Fetch channel list from server
+     * Fetch channel list from server.
+     * Concurrent calls for the same server and TV code share one request,
+     * so it is not exposed as a cancellable future.
+     * When a revision of the list is cached, only the changes since that
+     * revision are requested and merged into the cached list.
      */
     public static void fetchChannelList(Context context, final ChannelListCallback callback) {
-        new Thread(() -> {
-            HttpURLConnection connection = null;
-            try {
-                String baseUrl = getBaseUrl(context);
-                String tvCode = SettingsActivity.getTvCode(context);
-                URL url = new URL(baseUrl + "/api/v1/channels");
-                connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setConnectTimeout(TIMEOUT);
-                connection.setReadTimeout(TIMEOUT);
-                connection.setRequestProperty("Accept", "application/json");
-                connection.setRequestProperty("X-TV-Code", tvCode);
-
-                int responseCode = connection.getResponseCode();
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    String response = readStream(connection.getInputStream());
-                    JSONObject jsonResponse = new JSONObject(response);
-
-                    if (jsonResponse.optBoolean("success", false)) {
-                        JSONArray channelsArray = jsonResponse.getJSONArray("data");
-                        List<Channel> channels = parseChannels(channelsArray);
-
-                        if (callback != null) {
-                            callback.onSuccess(channels);
-                        }
-                    } else {
-                        if (callback != null) {
-                            callback.onError("Server returned error");
-                        }
+        fetchChannelList(ChannelResponseCache.getInstance(context), getEndpoints(context),
+                SettingsActivity.getTvCode(context), getChannelListKey(context), callback);
+    }
+
+    /**
+     * Fetch the channel list through the given cache and endpoints; tests point it at a local server
+     */
+    static void fetchChannelList(ChannelResponseCache cache, EndpointSelector endpoints, String tvCode,
+                                 String cacheKey, final ChannelListCallback callback) {
+        if (!CHANNEL_LIST_REQUESTS.join(cacheKey, callback)) {
+            Log.d(TAG, "Channel list request already in flight, joining it");
+            return;
+        }
+
+        requestChannelList(cache, endpoints, tvCode, cacheKey, true);
+    }
+
+    private static void requestChannelList(final ChannelResponseCache cache, final EndpointSelector endpoints,
+                                           final String tvCode, final String cacheKey,
+                                           final boolean allowDelta) {
+        long revision = allowDelta ? cache.getRevision(cacheKey) : ChannelPayload.NO_REVISION;
+        String path = "/api/v1/channels";
+        if (revision != ChannelPayload.NO_REVISION) {
+            path += "?since=" + revision;
+        }
+
+        HttpRequest request = HttpRequest.get(endpoints, path)
+                .header("Accept", "application/json")
+                .header("X-TV-Code", tvCode)
+                .timeouts(TIMEOUT, TIMEOUT);
+        cache.applyValidators(request, cacheKey);
+
+        HttpExecutor.getInstance().execute(request, response -> {
+            int responseCode = response.code();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                // Channel list unchanged - the caller keeps the list it already has
+                cache.recordHit();
+                return null;
+            } else if (responseCode == HttpURLConnection.HTTP_GONE && allowDelta) {
+                // Our revision is older than the server keeps changes for
+                cache.clear();
+                throw new RevisionExpiredException(revision);
+            } else if (responseCode == HttpURLConnection.HTTP_OK) {
+                cache.recordMiss();
+                // Parse straight off the socket
+                ChannelPayload payload = ChannelJsonParser.parse(response.body());
+                if (!payload.success) {
+                    throw new IOException("Server returned error");
+                }
+                if (!payload.delta) {
+                    return cache.store(cacheKey, response, payload);
+                }
+                List<Channel> channels = cache.storeDelta(cacheKey, response, payload);
+                if (channels == null) {
+                    // Nothing cached to apply the delta to any more
+                    cache.clear();
+                    throw new RevisionExpiredException(revision);
+                }
+                return channels;
+            }
+            throw new IOException("Server responded with code: " + responseCode);
+        }, new HttpExecutor.ResultListener<List<Channel>>() {
+            // Hand the single result to every caller that joined while the request was running
+            @Override
+            public void onResult(List<Channel> channels) {
+                for (ChannelListCallback waiting : CHANNEL_LIST_REQUESTS.complete(cacheKey)) {
+                    if (waiting == null) {
+                        continue;
                     }
-                } else {
-                    if (callback != null) {
-                        callback.onError("Server responded with code: " + responseCode);
+                    if (channels == null) {
+                        waiting.onNotModified();
+                    } else {
+                        waiting.onSuccess(channels);
                     }
                 }
-            } catch (Exception e) {
-                Log.e(TAG, "Error fetching channel list", e);
-                if (callback != null) {
-                    callback.onError(e.getMessage());
+            }
+
+            @Override
+            public void onFailure(Exception error) {
+                if (error instanceof RevisionExpiredException && allowDelta) {
+                    Log.d(TAG, error.getMessage() + ", fetching the full channel list");
+                    requestChannelList(cache, endpoints, tvCode, cacheKey, false);
+                    return;
                 }
-            } finally {
-                if (connection != null) {
-                    connection.disconnect();
+                for (ChannelListCallback waiting : CHANNEL_LIST_REQUESTS.complete(cacheKey)) {
+                    if (waiting != null) {
+                        waiting.onError(error.getMessage());
+                    }
                 }
             }
-        }).start();
+        });
+    }
+
+    /**
+     * The server no longer has the changes since our revision; a full refresh is needed
+     */
+    private static final class RevisionExpiredException extends IOException
+            implements HttpExecutor.ExpectedFailure {
+        RevisionExpiredException(long revision) {
+            super("Channel list revision " + revision + " is too old");
+        }
+    }
+
+    /**
+     * Last good channel list stored on this device, or null if there is none.
+     * Reads the snapshot from disk on first use, so call it off the main thread.
+     */
+    public static List<Channel> getCachedChannelList(Context context) {
+        return ChannelResponseCache.getInstance(context).getCachedChannels(getChannelListKey(context));
+    }
+
+    /**
+     * Key identifying the channel list for the configured servers and TV code.
+     * Mirrors serve the same list, so which one answered does not matter.
+     */
+    public static String getChannelListKey(Context context) {
+        return ChannelResponseCache.keyFor(TextUtils.join(",", getServerUrls(context)),
+                SettingsActivity.getTvCode(context));
     }
 
     /**
      * Check for app updates
      */
-    public static void checkForUpdates(Context context, int currentVersionCode, final AppVersionCallback callback) {
-        new Thread(() -> {
-            HttpURLConnection connection = null;
-            try {
-                String baseUrl = getBaseUrl(context);
-                String tvCode = SettingsActivity.getTvCode(context);
-                URL url = new URL(baseUrl + "/api/v1/app/version?currentVersion=" + currentVersionCode);
-                connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setConnectTimeout(TIMEOUT);
-                connection.setReadTimeout(TIMEOUT);
-                connection.setRequestProperty("Accept", "application/json");
-                connection.setRequestProperty("X-TV-Code", tvCode);
-
-                int responseCode = connection.getResponseCode();
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    String response = readStream(connection.getInputStream());
-                    JSONObject jsonResponse = new JSONObject(response);
-
-                    if (jsonResponse.optBoolean("success", false)) {
-                        AppVersionInfo versionInfo = new AppVersionInfo(jsonResponse);
-                        if (callback != null) {
-                            callback.onSuccess(versionInfo);
-                        }
-                    } else {
-                        if (callback != null) {
-                            callback.onError("Failed to check version");
-                        }
-                    }
-                } else {
-                    if (callback != null) {
-                        callback.onError("Server responded with code: " + responseCode);
-                    }
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error checking for updates", e);
+    public static Future<?> checkForUpdates(Context context, int currentVersionCode, final AppVersionCallback callback) {
+        HttpRequest request = HttpRequest.get(getEndpoints(context), "/api/v1/app/version?currentVersion=" + currentVersionCode)
+                .header("Accept", "application/json")
+                .header("X-TV-Code", SettingsActivity.getTvCode(context))
+                .timeouts(TIMEOUT, TIMEOUT);
+
+        return HttpExecutor.getInstance().execute(request, response -> {
+            if (response.code() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Server responded with code: " + response.code());
+            }
+            JSONObject jsonResponse = new JSONObject(readStream(response.body()));
+            if (!jsonResponse.optBoolean("success", false)) {
+                throw new IOException("Failed to check version");
+            }
+            return new AppVersionInfo(jsonResponse);
+        }, new HttpExecutor.ResultListener<AppVersionInfo>() {
+            @Override
+            public void onResult(AppVersionInfo versionInfo) {
                 if (callback != null) {
-                    callback.onError(e.getMessage());
+                    callback.onSuccess(versionInfo);
                 }
-            } finally {
-                if (connection != null) {
-                    connection.disconnect();
+            }
+
+            @Override
+            public void onFailure(Exception error) {
+                if (callback != null) {
+                    callback.onError(error.getMessage());
                 }
             }
-        }).start();
+        });
     }
 
     /**
-     * Parse JSON array to Channel list
+     * Request a new pairing PIN for this device
      */
-    private static List<Channel> parseChannels(JSONArray jsonArray) throws Exception {
-        List<Channel> channels = new ArrayList<>();
-
-        for (int i = 0; i < jsonArray.length(); i++) {
-            JSONObject channelObj = jsonArray.getJSONObject(i);
-            Channel channel = new Channel();
-
-            channel.setChannelId(channelObj.optString("channelId", ""));
-            channel.setChannelName(channelObj.optString("channelName", "Unknown"));
-            channel.setChannelUrl(channelObj.optString("channelUrl", ""));
-            channel.setChannelImg(channelObj.optString("channelImg", ""));
-            channel.setChannelGroup(channelObj.optString("channelGroup", "Uncategorized"));
-            channel.setChannelDrmKey(channelObj.optString("channelDrmKey", ""));
-            channel.setChannelDrmType(channelObj.optString("channelDrmType", ""));
-            
-            // Extract language from metadata
-            if (channelObj.has("metadata")) {
-                JSONObject metadata = channelObj.getJSONObject("metadata");
-                channel.setChannelLanguage(metadata.optString("language", "Unknown"));
-            } else {
-                channel.setChannelLanguage("Unknown");
-            }
-
-            channels.add(channel);
+    public static Future<?> requestPairing(Context context, String deviceName, String deviceModel,
+                                           final JsonCallback callback) {
+        String body;
+        try {
+            JSONObject requestData = new JSONObject();
+            requestData.put("deviceName", deviceName);
+            requestData.put("deviceModel", deviceModel);
+            body = requestData.toString();
+        } catch (JSONException e) {
+            body = "{}";
         }
 
-        return channels;
+        HttpRequest request = HttpRequest.postJson(getEndpoints(context), "/api/v1/tv/pairing/request", body)
+                .timeouts(PAIRING_TIMEOUT, PAIRING_TIMEOUT);
+        return executeJson(request, callback);
+    }
+
+    /**
+     * Check whether the pairing PIN has been confirmed on the web dashboard
+     */
+    public static Future<?> checkPairingStatus(Context context, String pin, final JsonCallback callback) {
+        HttpRequest request = HttpRequest.get(getEndpoints(context), "/api/v1/tv/pairing/status/" + pin)
+                .header("Accept", "application/json")
+                .timeouts(PAIRING_TIMEOUT, PAIRING_TIMEOUT)
+                .retry(RetryPolicy.NONE); // polled every few seconds anyway
+        return executeJson(request, callback);
+    }
+
+    private static Future<?> executeJson(HttpRequest request, final JsonCallback callback) {
+        return HttpExecutor.getInstance().execute(request, response -> {
+            if (response.code() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Server error: " + response.code());
+            }
+            return new JSONObject(readStream(response.body()));
+        }, new HttpExecutor.ResultListener<JSONObject>() {
+            @Override
+            public void onResult(JSONObject result) {
+                if (callback != null) {
+                    callback.onSuccess(result);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception error) {
+                if (callback != null) {
+                    callback.onError(error.getMessage());
+                }
+            }
+        });
     }
 
     /**
      * Read input stream to string
      */
-    private static String readStream(InputStream inputStream) throws Exception {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
+    private static String readStream(InputStream inputStream) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
         StringBuilder result = new StringBuilder();
         String line;
 
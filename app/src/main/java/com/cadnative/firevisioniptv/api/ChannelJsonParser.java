@@ -0,0 +1,194 @@
+package com.cadnative.firevisioniptv.api;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.cadnative.firevisioniptv.Channel;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming parser for the /api/v1/channels payload.
+ * Builds Channel objects token by token straight from the response stream, so
+ * neither the raw body nor a JSONObject tree is ever held in memory.
+ * Understands both the full list ({@code data}) and the delta form
+ * ({@code delta: true} with a {@code changes} array). Unknown fields are skipped.
+ */
+final class ChannelJsonParser {
+
+    private ChannelJsonParser() {
+    }
+
+    /**
+     * Parse a channel list response, either a full list or a delta since a revision.
+     * The payload's success flag is false if the server reported an error.
+     */
+    static ChannelPayload parse(InputStream inputStream) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(
+                new BufferedInputStream(inputStream), StandardCharsets.UTF_8));
+        try {
+            ChannelPayload payload = new ChannelPayload();
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("success".equals(name) && reader.peek() == JsonToken.BOOLEAN) {
+                    payload.success = reader.nextBoolean();
+                } else if ("revision".equals(name) && reader.peek() == JsonToken.NUMBER) {
+                    payload.revision = reader.nextLong();
+                } else if ("delta".equals(name) && reader.peek() == JsonToken.BOOLEAN) {
+                    payload.delta = reader.nextBoolean();
+                } else if ("data".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    payload.channels = readChannels(reader);
+                } else if ("changes".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    payload.changes = readChanges(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return payload;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Read the add / update / remove operations of a delta response
+     */
+    private static List<ChannelPayload.Change> readChanges(JsonReader reader) throws IOException {
+        List<ChannelPayload.Change> changes = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+
+            ChannelPayload.Change change = new ChannelPayload.Change();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("op".equals(name)) {
+                    change.op = readString(reader, null);
+                } else if ("channelId".equals(name)) {
+                    change.channelId = readString(reader, null);
+                } else if ("channel".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    change.channel = readChannel(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            changes.add(change);
+        }
+        reader.endArray();
+        return changes;
+    }
+
+    private static List<Channel> readChannels(JsonReader reader) throws IOException {
+        List<Channel> channels = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                channels.add(readChannel(reader));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endArray();
+        return channels;
+    }
+
+    private static Channel readChannel(JsonReader reader) throws IOException {
+        Channel channel = new Channel();
+        channel.setChannelId("");
+        channel.setChannelName("Unknown");
+        channel.setChannelUrl("");
+        channel.setChannelImg("");
+        channel.setChannelGroup("Uncategorized");
+        channel.setChannelLanguage("Unknown");
+        channel.setChannelDrmKey("");
+        channel.setChannelDrmType("");
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "channelId":
+                    channel.setChannelId(readString(reader, ""));
+                    break;
+                case "channelName":
+                    channel.setChannelName(readString(reader, "Unknown"));
+                    break;
+                case "channelUrl":
+                    channel.setChannelUrl(readString(reader, ""));
+                    break;
+                case "channelImg":
+                    channel.setChannelImg(readString(reader, ""));
+                    break;
+                case "channelGroup":
+                    channel.setChannelGroup(readString(reader, "Uncategorized"));
+                    break;
+                case "channelDrmKey":
+                    channel.setChannelDrmKey(readString(reader, ""));
+                    break;
+                case "channelDrmType":
+                    channel.setChannelDrmType(readString(reader, ""));
+                    break;
+                case "metadata":
+                    channel.setChannelLanguage(readLanguage(reader));
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return channel;
+    }
+
+    /**
+     * Extract the language from the metadata object
+     */
+    private static String readLanguage(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return "Unknown";
+        }
+
+        String language = "Unknown";
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("language".equals(reader.nextName())) {
+                language = readString(reader, "Unknown");
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return language;
+    }
+
+    /**
+     * Read a scalar as a string; nulls, objects and arrays fall back to the default
+     */
+    private static String readString(JsonReader reader, String fallback) throws IOException {
+        switch (reader.peek()) {
+            case STRING:
+            case NUMBER:
+                return reader.nextString();
+            case BOOLEAN:
+                return String.valueOf(reader.nextBoolean());
+            default:
+                reader.skipValue();
+                return fallback;
+        }
+    }
+}
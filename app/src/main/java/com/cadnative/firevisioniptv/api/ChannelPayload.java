@@ -0,0 +1,95 @@
+package com.cadnative.firevisioniptv.api;
+
+import com.cadnative.firevisioniptv.Channel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parsed /api/v1/channels response.
+ * Either a full list ({@code data}) or, for a {@code ?since=} request the
+ * server could answer incrementally, a list of changes since that revision.
+ */
+final class ChannelPayload {
+    static final long NO_REVISION = -1;
+
+    boolean success;
+    long revision = NO_REVISION;
+    boolean delta;
+    List<Channel> channels = new ArrayList<>();
+    List<Change> changes = new ArrayList<>();
+
+    /**
+     * One add / update / remove operation from a delta response
+     */
+    static final class Change {
+        static final String ADD = "add";
+        static final String UPDATE = "update";
+        static final String REMOVE = "remove";
+
+        String op;
+        String channelId;
+        Channel channel;
+    }
+
+    /**
+     * Apply the delta operations to the current list, keeping existing order.
+     * Added channels go to the end; updates replace the channel in place.
+     * Channels without an ID cannot be addressed by a change, so they stay where they are.
+     */
+    List<Channel> applyTo(List<Channel> current) {
+        List<Channel> merged = new ArrayList<>(current.size());
+        Map<String, Integer> indexById = new HashMap<>();
+        for (Channel channel : current) {
+            String id = channel.getChannelId();
+            if (id == null || id.isEmpty()) {
+                merged.add(channel);
+                continue;
+            }
+            Integer index = indexById.get(id);
+            if (index != null) {
+                merged.set(index, channel); // a repeated ID keeps the first position
+            } else {
+                indexById.put(id, merged.size());
+                merged.add(channel);
+            }
+        }
+
+        for (Change change : changes) {
+            String id = change.channelId;
+            if (id == null && change.channel != null) {
+                id = change.channel.getChannelId();
+            }
+            if (id == null || id.isEmpty()) {
+                continue;
+            }
+
+            Integer index = indexById.get(id);
+            if (Change.REMOVE.equals(change.op)) {
+                if (index != null) {
+                    merged.set(index, null);
+                    indexById.remove(id);
+                }
+            } else if (change.channel != null
+                    && (Change.ADD.equals(change.op) || Change.UPDATE.equals(change.op))) {
+                change.channel.setChannelId(id);
+                if (index != null) {
+                    merged.set(index, change.channel);
+                } else {
+                    indexById.put(id, merged.size());
+                    merged.add(change.channel);
+                }
+            }
+        }
+
+        List<Channel> result = new ArrayList<>(merged.size());
+        for (Channel channel : merged) {
+            if (channel != null) {
+                result.add(channel);
+            }
+        }
+        return result;
+    }
+}
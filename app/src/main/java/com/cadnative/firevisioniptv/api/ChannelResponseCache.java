@@ -0,0 +1,203 @@
+package com.cadnative.firevisioniptv.api;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.cadnative.firevisioniptv.Channel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistent store for the last good channel list.
+ * Keeps the list as a binary {@link ChannelSnapshot} together with its
+ * ETag / Last-Modified validators, so repeat loads can be revalidated with a
+ * conditional GET and a cold start can paint the home screen before the
+ * network answers. When the server tags the list with a revision, delta
+ * responses are merged into the stored list.
+ */
+public class ChannelResponseCache {
+    private static final String TAG = "ChannelResponseCache";
+    private static final String PREFS_NAME = "FireVisionChannelCache";
+    private static final String KEY_CACHE_KEY = "cache_key";
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_LAST_MODIFIED = "last_modified";
+    private static final String KEY_REVISION = "revision";
+    private static final String SNAPSHOT_FILE_NAME = "channels.snapshot";
+    private static final String LEGACY_BODY_FILE_NAME = "channels.json";
+
+    private static ChannelResponseCache instance;
+
+    private final SharedPreferences prefs;
+    private final File snapshotFile;
+    private final AtomicInteger hitCount = new AtomicInteger();
+    private final AtomicInteger missCount = new AtomicInteger();
+
+    // Package-private so tests can use a cache of their own; the app shares getInstance()
+    ChannelResponseCache(Context context) {
+        Context appContext = context.getApplicationContext();
+        prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        snapshotFile = new File(appContext.getCacheDir(), SNAPSHOT_FILE_NAME);
+
+        // Older versions kept the raw JSON response; its validators are no longer valid
+        File legacy = new File(appContext.getCacheDir(), LEGACY_BODY_FILE_NAME);
+        if (legacy.exists() && legacy.delete()) {
+            prefs.edit().clear().apply();
+        }
+    }
+
+    public static synchronized ChannelResponseCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new ChannelResponseCache(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Build the cache key for a server / TV code pair
+     */
+    public static String keyFor(String baseUrl, String tvCode) {
+        return baseUrl + "|" + tvCode;
+    }
+
+    /**
+     * Add If-None-Match / If-Modified-Since headers when a list for this key is stored
+     */
+    public synchronized void applyValidators(HttpRequest request, String key) {
+        if (!hasSnapshot(key)) {
+            return;
+        }
+
+        String etag = prefs.getString(KEY_ETAG, null);
+        String lastModified = prefs.getString(KEY_LAST_MODIFIED, null);
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            request.header("If-Modified-Since", lastModified);
+        }
+    }
+
+    /**
+     * Revision of the stored list for this key, or {@link ChannelPayload#NO_REVISION}
+     * if there is no list a delta could be applied to
+     */
+    public synchronized long getRevision(String key) {
+        if (!hasSnapshot(key)) {
+            return ChannelPayload.NO_REVISION;
+        }
+        return prefs.getLong(KEY_REVISION, ChannelPayload.NO_REVISION);
+    }
+
+    /**
+     * Get the stored channel list, or null if nothing usable is stored for this key.
+     * Always read from the snapshot on disk: the loaded list lives in the app's
+     * compact channel store, so keeping a second decoded copy here would double its heap.
+     */
+    public synchronized List<Channel> getCachedChannels(String key) {
+        if (!hasSnapshot(key)) {
+            return null;
+        }
+
+        long started = SystemClock.elapsedRealtime();
+        ChannelPayload payload;
+        try {
+            payload = ChannelSnapshot.read(snapshotFile);
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable channel snapshot", e);
+            clear();
+            return null;
+        }
+        Log.d(TAG, "Loaded " + payload.channels.size() + " channels from snapshot in "
+                + (SystemClock.elapsedRealtime() - started) + "ms");
+
+        return Collections.unmodifiableList(payload.channels);
+    }
+
+    /**
+     * Store a full 200 response, its validators and revision
+     */
+    synchronized List<Channel> store(String key, HttpResponse response, ChannelPayload payload) {
+        return commit(key, response, payload.revision, payload.channels);
+    }
+
+    /**
+     * Apply a delta response to the stored list and store the merged result.
+     * Returns null if there is no stored list to apply it to.
+     */
+    synchronized List<Channel> storeDelta(String key, HttpResponse response, ChannelPayload payload) {
+        List<Channel> current = getCachedChannels(key);
+        if (current == null) {
+            return null;
+        }
+
+        List<Channel> merged = payload.applyTo(current);
+        Log.d(TAG, "Applied " + payload.changes.size() + " channel changes, revision "
+                + getRevision(key) + " -> " + payload.revision);
+        return commit(key, response, payload.revision, merged);
+    }
+
+    private List<Channel> commit(String key, HttpResponse response, long revision, List<Channel> channels) {
+        List<Channel> stored = Collections.unmodifiableList(channels);
+
+        // Write to a temp file and rename, so a crash never leaves a truncated snapshot behind
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        try {
+            ChannelSnapshot.write(tmp, revision, channels);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not write channel snapshot", e);
+            clear();
+            return stored;
+        }
+
+        if (tmp.renameTo(snapshotFile)) {
+            prefs.edit()
+                    .putString(KEY_CACHE_KEY, key)
+                    .putString(KEY_ETAG, response.header("ETag"))
+                    .putString(KEY_LAST_MODIFIED, response.header("Last-Modified"))
+                    .putLong(KEY_REVISION, revision)
+                    .apply();
+        } else {
+            Log.e(TAG, "Could not rename " + tmp + " to " + snapshotFile);
+            clear();
+        }
+        return stored;
+    }
+
+    /**
+     * Drop the stored list and its validators
+     */
+    public synchronized void clear() {
+        prefs.edit().clear().apply();
+        if (snapshotFile.exists() && !snapshotFile.delete()) {
+            Log.w(TAG, "Could not delete " + snapshotFile);
+        }
+    }
+
+    public void recordHit() {
+        int hits = hitCount.incrementAndGet();
+        Log.d(TAG, "Channel list cache hit (hits=" + hits + ", misses=" + missCount.get() + ")");
+    }
+
+    public void recordMiss() {
+        int misses = missCount.incrementAndGet();
+        Log.d(TAG, "Channel list cache miss (hits=" + hitCount.get() + ", misses=" + misses + ")");
+    }
+
+    public int getHitCount() {
+        return hitCount.get();
+    }
+
+    public int getMissCount() {
+        return missCount.get();
+    }
+
+    private boolean hasSnapshot(String key) {
+        return key.equals(prefs.getString(KEY_CACHE_KEY, null)) && snapshotFile.exists();
+    }
+}
@@ -0,0 +1,126 @@
+package com.cadnative.firevisioniptv.api;
+
+import com.cadnative.firevisioniptv.Channel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of a channel list, used to paint the home screen on cold start.
+ * Strings are length-prefixed (DataOutput UTF); group, language and DRM type
+ * repeat across thousands of channels, so they are stored once in a string
+ * table and referenced by index. Reading involves no tokenizing at all, which
+ * makes it several times faster than parsing the JSON response.
+ *
+ * Layout: magic, version, revision, string table, channel count, channels.
+ */
+final class ChannelSnapshot {
+    private static final int MAGIC = 0x46564353; // "FVCS"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ChannelSnapshot() {
+    }
+
+    static void write(File file, long revision, List<Channel> channels) throws IOException {
+        List<String> table = new ArrayList<>();
+        Map<String, Integer> tableIndex = new HashMap<>();
+        for (Channel channel : channels) {
+            intern(table, tableIndex, channel.getChannelGroup());
+            intern(table, tableIndex, channel.getChannelLanguage());
+            intern(table, tableIndex, channel.getChannelDrmType());
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(revision);
+
+            out.writeInt(table.size());
+            for (String value : table) {
+                out.writeUTF(value);
+            }
+
+            out.writeInt(channels.size());
+            for (Channel channel : channels) {
+                out.writeUTF(orEmpty(channel.getChannelId()));
+                out.writeUTF(orEmpty(channel.getChannelName()));
+                out.writeUTF(orEmpty(channel.getChannelUrl()));
+                out.writeUTF(orEmpty(channel.getChannelImg()));
+                out.writeInt(tableIndex.get(orEmpty(channel.getChannelGroup())));
+                out.writeInt(tableIndex.get(orEmpty(channel.getChannelLanguage())));
+                out.writeUTF(orEmpty(channel.getChannelDrmKey()));
+                out.writeInt(tableIndex.get(orEmpty(channel.getChannelDrmType())));
+            }
+        }
+    }
+
+    /**
+     * Read a snapshot back as a full channel payload
+     */
+    static ChannelPayload read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unsupported channel snapshot " + file);
+            }
+
+            ChannelPayload payload = new ChannelPayload();
+            payload.revision = in.readLong();
+
+            String[] table = new String[in.readInt()];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = in.readUTF();
+            }
+
+            int count = in.readInt();
+            List<Channel> channels = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Channel channel = new Channel();
+                channel.setChannelId(in.readUTF());
+                channel.setChannelName(in.readUTF());
+                channel.setChannelUrl(in.readUTF());
+                channel.setChannelImg(in.readUTF());
+                channel.setChannelGroup(entry(table, in.readInt()));
+                channel.setChannelLanguage(entry(table, in.readInt()));
+                channel.setChannelDrmKey(in.readUTF());
+                channel.setChannelDrmType(entry(table, in.readInt()));
+                channels.add(channel);
+            }
+
+            payload.channels = channels;
+            payload.success = true;
+            return payload;
+        }
+    }
+
+    private static String entry(String[] table, int index) throws IOException {
+        if (index < 0 || index >= table.length) {
+            throw new IOException("Corrupt channel snapshot: string index " + index);
+        }
+        return table[index];
+    }
+
+    private static void intern(List<String> table, Map<String, Integer> tableIndex, String value) {
+        String key = orEmpty(value);
+        if (!tableIndex.containsKey(key)) {
+            tableIndex.put(key, table.size());
+            table.add(key);
+        }
+    }
+
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
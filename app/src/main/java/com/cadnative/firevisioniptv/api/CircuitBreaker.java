@@ -0,0 +1,77 @@
+package com.cadnative.firevisioniptv.api;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Per-host circuit breaker.
+ * After enough consecutive failures the circuit opens and requests to the host
+ * fail immediately instead of waiting for another timeout. Once the cool-down
+ * has passed a single probe request is let through (half-open); its outcome
+ * closes the circuit again or restarts the cool-down.
+ */
+final class CircuitBreaker {
+    private static final String TAG = "CircuitBreaker";
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final long OPEN_DURATION_MS = 30000; // 30 seconds
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String host;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    CircuitBreaker(String host) {
+        this.host = host;
+    }
+
+    /**
+     * Whether a request may be sent now; moves an expired open circuit to half-open
+     */
+    synchronized boolean allowRequest() {
+        switch (state) {
+            case OPEN:
+                if (SystemClock.elapsedRealtime() - openedAt < OPEN_DURATION_MS) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                openedAt = SystemClock.elapsedRealtime();
+                Log.d(TAG, host + ": half-open, sending probe request");
+                return true;
+            case HALF_OPEN:
+                // Only the probe goes through until it reports back; if it never
+                // does (cancelled mid-flight), allow another one after the cool-down
+                if (SystemClock.elapsedRealtime() - openedAt < OPEN_DURATION_MS) {
+                    return false;
+                }
+                openedAt = SystemClock.elapsedRealtime();
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            Log.d(TAG, host + ": circuit closed");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Record a failure; returns true if this failure opened the circuit
+     */
+    synchronized boolean recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN
+                || (state == State.CLOSED && consecutiveFailures >= FAILURE_THRESHOLD)) {
+            state = State.OPEN;
+            openedAt = SystemClock.elapsedRealtime();
+            Log.w(TAG, host + ": circuit opened after " + consecutiveFailures + " failures");
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,182 @@
+package com.cadnative.firevisioniptv.api;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Chooses which of the configured server mirrors a request goes to.
+ * Keeps a rolling (EWMA) latency estimate per endpoint from probes and real
+ * traffic, prefers the fastest healthy one, and takes an endpoint out of
+ * rotation for a cool-down period after it fails. {@link HttpExecutor} asks
+ * for a new endpoint on every attempt, so a failing mirror is left mid-session.
+ */
+public final class EndpointSelector {
+    private static final String TAG = "EndpointSelector";
+    private static final double EWMA_WEIGHT = 0.3; // weight of the newest sample
+    private static final long FAILURE_COOLDOWN_MS = 30000; // 30 seconds
+    private static final int PROBE_TIMEOUT = 5000; // 5 seconds
+
+    private static EndpointSelector instance;
+
+    private List<Endpoint> endpoints = Collections.emptyList();
+
+    private static final class Endpoint {
+        final String baseUrl;
+        double latencyMs = Double.NaN; // NaN until the first sample
+        long failedAt;
+
+        Endpoint(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        boolean isHealthy(long now) {
+            return failedAt == 0 || now - failedAt >= FAILURE_COOLDOWN_MS;
+        }
+    }
+
+    private EndpointSelector() {
+    }
+
+    public static synchronized EndpointSelector getInstance() {
+        if (instance == null) {
+            instance = new EndpointSelector();
+        }
+        return instance;
+    }
+
+    /**
+     * Replace the configured endpoints, keeping the statistics of ones already known.
+     * Returns true if the list changed.
+     */
+    public synchronized boolean setEndpoints(List<String> baseUrls) {
+        List<String> current = new ArrayList<>();
+        for (Endpoint endpoint : endpoints) {
+            current.add(endpoint.baseUrl);
+        }
+        if (current.equals(baseUrls)) {
+            return false;
+        }
+
+        List<Endpoint> updated = new ArrayList<>();
+        for (String baseUrl : baseUrls) {
+            Endpoint endpoint = find(baseUrl);
+            updated.add(endpoint != null ? endpoint : new Endpoint(baseUrl));
+        }
+        endpoints = updated;
+        return true;
+    }
+
+    /**
+     * Probe every endpoint in parallel; any HTTP answer below 500 counts as healthy
+     */
+    public void probe() {
+        List<String> baseUrls = new ArrayList<>();
+        synchronized (this) {
+            for (Endpoint endpoint : endpoints) {
+                baseUrls.add(endpoint.baseUrl);
+            }
+        }
+
+        for (final String baseUrl : baseUrls) {
+            HttpRequest request = HttpRequest.head(baseUrl + "/")
+                    .timeouts(PROBE_TIMEOUT, PROBE_TIMEOUT)
+                    .retry(RetryPolicy.NONE);
+            HttpExecutor.getInstance().execute(request, response -> {
+                if (response.code() >= 500) {
+                    recordFailure(baseUrl);
+                } else {
+                    recordSuccess(baseUrl, response.latencyMs());
+                }
+                return null;
+            }, new HttpExecutor.ResultListener<Object>() {
+                @Override
+                public void onResult(Object result) {
+                }
+
+                @Override
+                public void onFailure(Exception error) {
+                    recordFailure(baseUrl);
+                }
+            });
+        }
+    }
+
+    /**
+     * Pick the endpoint for the next attempt, skipping the ones already tried.
+     * Healthy endpoints are ranked by latency estimate, unmeasured ones after
+     * measured ones in configured order; if none is healthy, the one that failed
+     * longest ago is used. Returns null when every endpoint has been tried.
+     */
+    synchronized String select(Set<String> tried) {
+        long now = SystemClock.elapsedRealtime();
+        Endpoint best = null;
+        Endpoint leastRecentlyFailed = null;
+        for (Endpoint endpoint : endpoints) {
+            if (tried.contains(endpoint.baseUrl)) {
+                continue;
+            }
+            if (!endpoint.isHealthy(now)) {
+                if (leastRecentlyFailed == null || endpoint.failedAt < leastRecentlyFailed.failedAt) {
+                    leastRecentlyFailed = endpoint;
+                }
+            } else if (best == null || isFaster(endpoint, best)) {
+                best = endpoint;
+            }
+        }
+        if (best == null) {
+            best = leastRecentlyFailed;
+        }
+        return best != null ? best.baseUrl : null;
+    }
+
+    private static boolean isFaster(Endpoint candidate, Endpoint current) {
+        if (Double.isNaN(candidate.latencyMs)) {
+            return false;
+        }
+        return Double.isNaN(current.latencyMs) || candidate.latencyMs < current.latencyMs;
+    }
+
+    synchronized void recordSuccess(String baseUrl, long latencyMs) {
+        Endpoint endpoint = find(baseUrl);
+        if (endpoint == null) {
+            return;
+        }
+        endpoint.latencyMs = Double.isNaN(endpoint.latencyMs)
+                ? latencyMs
+                : EWMA_WEIGHT * latencyMs + (1 - EWMA_WEIGHT) * endpoint.latencyMs;
+        endpoint.failedAt = 0;
+    }
+
+    synchronized void recordFailure(String baseUrl) {
+        Endpoint endpoint = find(baseUrl);
+        if (endpoint == null) {
+            return;
+        }
+        if (endpoint.isHealthy(SystemClock.elapsedRealtime())) {
+            Log.w(TAG, baseUrl + " marked unhealthy");
+        }
+        endpoint.failedAt = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Rolling latency estimate for an endpoint in milliseconds, or NaN if not yet measured
+     */
+    public synchronized double getLatencyEstimate(String baseUrl) {
+        Endpoint endpoint = find(baseUrl);
+        return endpoint != null ? endpoint.latencyMs : Double.NaN;
+    }
+
+    private Endpoint find(String baseUrl) {
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.baseUrl.equals(baseUrl)) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+}
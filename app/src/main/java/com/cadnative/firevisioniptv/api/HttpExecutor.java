@@ -0,0 +1,386 @@
+package com.cadnative.firevisioniptv.api;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Central HTTP execution layer for all server calls.
+ * Runs requests on a small bounded thread pool instead of a new thread per
+ * call, and releases every response body fully so HttpURLConnection can keep
+ * the socket alive and reuse it for the next request to the same host.
+ * Every call returns a Future; cancelling it aborts the connection.
+ * Idempotent requests are retried with backoff on transport errors and
+ * transient 5xx/429 responses, and a per-host {@link CircuitBreaker} makes
+ * calls to a host that keeps failing fail fast instead of timing out.
+ */
+public final class HttpExecutor {
+    private static final String TAG = "HttpExecutor";
+    private static final int POOL_SIZE = 4;
+    private static final int QUEUE_CAPACITY = 32;
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 30;
+
+    private static HttpExecutor instance;
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, CircuitBreaker> breakers = new HashMap<>();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong circuitOpenCount = new AtomicLong();
+    private final AtomicLong shortCircuitCount = new AtomicLong();
+
+    /**
+     * Turns a response into a result; runs on a pool thread
+     */
+    public interface ResponseHandler<T> {
+        T handle(HttpResponse response) throws Exception;
+    }
+
+    /**
+     * Notified on the pool thread once a call finishes; not called if it was cancelled
+     */
+    public interface ResultListener<T> {
+        void onResult(T result);
+        void onFailure(Exception error);
+    }
+
+    private HttpExecutor() {
+        executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE,
+                IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                new NetworkThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static synchronized HttpExecutor getInstance() {
+        if (instance == null) {
+            instance = new HttpExecutor();
+        }
+        return instance;
+    }
+
+    /**
+     * Execute a request and return a cancellable future for the handled result
+     */
+    public <T> Future<T> execute(HttpRequest request, ResponseHandler<T> handler) {
+        return execute(request, handler, null);
+    }
+
+    /**
+     * Execute a request and report the outcome to the listener as well as the returned future
+     */
+    public <T> Future<T> execute(HttpRequest request, ResponseHandler<T> handler, ResultListener<T> listener) {
+        HttpCall<T> call = HttpCall.create(this, request, handler, listener);
+        try {
+            executor.execute(call);
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Network queue full, rejecting " + request);
+            call.fail(e);
+        }
+        return call;
+    }
+
+    /**
+     * Number of times a request was sent again after a failed attempt
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * Number of failed attempts: transport errors and transient 5xx responses
+     */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * Number of times a host's circuit was opened
+     */
+    public long getCircuitOpenCount() {
+        return circuitOpenCount.get();
+    }
+
+    /**
+     * Number of requests failed fast because their host's circuit was open
+     */
+    public long getShortCircuitCount() {
+        return shortCircuitCount.get();
+    }
+
+    private CircuitBreaker breakerFor(URL url) {
+        String host = url.getHost() + ":" + url.getPort();
+        synchronized (breakers) {
+            CircuitBreaker breaker = breakers.get(host);
+            if (breaker == null) {
+                breaker = new CircuitBreaker(url.getHost());
+                breakers.put(host, breaker);
+            }
+            return breaker;
+        }
+    }
+
+    private <T> T perform(HttpCall<T> call) throws Exception {
+        HttpRequest request = call.request;
+        EndpointSelector endpoints = request.endpoints;
+        Set<String> tried = new HashSet<>();
+        int maxAttempts = RetryPolicy.isIdempotent(request) ? request.retryPolicy.maxAttempts : 1;
+
+        for (int attempt = 1; ; attempt++) {
+            String baseUrl = null;
+            URL url;
+            if (endpoints != null) {
+                baseUrl = endpoints.select(tried);
+                if (baseUrl == null) {
+                    // Every mirror has had a go; start another round with the best of them
+                    tried.clear();
+                    baseUrl = endpoints.select(tried);
+                }
+                if (baseUrl == null) {
+                    throw new IOException("No server configured");
+                }
+                tried.add(baseUrl);
+                url = new URL(baseUrl + request.url);
+            } else {
+                url = new URL(request.url);
+            }
+
+            CircuitBreaker breaker = breakerFor(url);
+            if (!breaker.allowRequest()) {
+                shortCircuitCount.incrementAndGet();
+                if (baseUrl != null) {
+                    endpoints.recordFailure(baseUrl);
+                    if (endpoints.select(tried) != null) {
+                        // Skipping an open circuit does not use up an attempt
+                        attempt--;
+                        continue;
+                    }
+                }
+                throw new CircuitOpenException(url.getHost());
+            }
+
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            call.connection = connection;
+            if (call.isCancelled()) {
+                throw new InterruptedException("Request cancelled: " + request);
+            }
+
+            HttpResponse response;
+            try {
+                response = connect(request, connection);
+            } catch (IOException e) {
+                connection.disconnect();
+                if (call.isCancelled()) {
+                    throw e;
+                }
+                recordFailure(breaker, endpoints, baseUrl);
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                backOff(request, attempt, null, e.toString(), endpoints, tried);
+                continue;
+            }
+
+            int code = response.code();
+            if (code >= HttpURLConnection.HTTP_INTERNAL_ERROR && RetryPolicy.isRetryableStatus(code)) {
+                recordFailure(breaker, endpoints, baseUrl);
+            } else {
+                // Anything else, including 4xx, means the host itself is reachable
+                breaker.recordSuccess();
+                if (baseUrl != null) {
+                    endpoints.recordSuccess(baseUrl, response.latencyMs());
+                }
+            }
+            if (RetryPolicy.isRetryableStatus(code) && attempt < maxAttempts) {
+                String retryAfter = response.header("Retry-After");
+                response.release();
+                backOff(request, attempt, retryAfter, "HTTP " + code, endpoints, tried);
+                continue;
+            }
+
+            try {
+                T result = call.handler.handle(response);
+                response.release();
+                return result;
+            } catch (Exception e) {
+                // State of the socket is unknown after a failure, so never return it to the pool
+                connection.disconnect();
+                throw e;
+            }
+        }
+    }
+
+    private static HttpResponse connect(HttpRequest request, HttpURLConnection connection) throws IOException {
+        connection.setRequestMethod(request.method);
+        connection.setConnectTimeout(request.connectTimeout);
+        connection.setReadTimeout(request.readTimeout);
+        connection.setRequestProperty("Connection", "keep-alive");
+        // Asking explicitly means HttpURLConnection hands us the compressed stream,
+        // so HttpResponse can decode it while counting bytes on the wire
+        connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+        for (Map.Entry<String, String> header : request.headers.entrySet()) {
+            connection.setRequestProperty(header.getKey(), header.getValue());
+        }
+
+        long started = SystemClock.elapsedRealtime();
+        if (request.body != null) {
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(request.body.length);
+            try (OutputStream os = connection.getOutputStream()) {
+                os.write(request.body);
+            }
+        }
+        int code = connection.getResponseCode();
+        return new HttpResponse(request, connection, code, SystemClock.elapsedRealtime() - started);
+    }
+
+    private void recordFailure(CircuitBreaker breaker, EndpointSelector endpoints, String baseUrl) {
+        failureCount.incrementAndGet();
+        if (baseUrl != null) {
+            endpoints.recordFailure(baseUrl);
+        }
+        if (breaker.recordFailure()) {
+            circuitOpenCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Sleep before the next attempt; cancelling the call interrupts the wait.
+     * Failing over to a mirror that has not been tried yet happens immediately.
+     */
+    private void backOff(HttpRequest request, int attempt, String retryAfter, String reason,
+                         EndpointSelector endpoints, Set<String> tried) throws InterruptedException {
+        retryCount.incrementAndGet();
+        if (endpoints != null) {
+            String next = endpoints.select(tried);
+            if (next != null) {
+                Log.w(TAG, request + " failed (" + reason + "), failing over to " + next);
+                return;
+            }
+        }
+        long delay = request.retryPolicy.delayBeforeRetry(attempt, retryAfter);
+        Log.w(TAG, request + " failed (" + reason + "), retry " + attempt + " in " + delay + "ms");
+        Thread.sleep(delay);
+    }
+
+    /**
+     * Marks failures that are part of normal control flow, such as a fallback
+     * the caller handles itself; they are logged at debug level, not as errors
+     */
+    public interface ExpectedFailure {
+    }
+
+    /**
+     * Thrown without touching the network while a host's circuit is open
+     */
+    public static final class CircuitOpenException extends IOException implements ExpectedFailure {
+        CircuitOpenException(String host) {
+            super("Server " + host + " is unavailable, try again shortly");
+        }
+    }
+
+    /**
+     * Future for one request; cancelling it disconnects the in-progress connection
+     */
+    private static final class HttpCall<T> extends FutureTask<T> {
+        final HttpExecutor executor;
+        final HttpRequest request;
+        final ResponseHandler<T> handler;
+        final ResultListener<T> listener;
+        volatile HttpURLConnection connection;
+
+        static <T> HttpCall<T> create(HttpExecutor executor, HttpRequest request, ResponseHandler<T> handler,
+                                      ResultListener<T> listener) {
+            CallBody<T> body = new CallBody<>();
+            HttpCall<T> call = new HttpCall<>(body, executor, request, handler, listener);
+            body.owner = call;
+            return call;
+        }
+
+        private HttpCall(CallBody<T> body, HttpExecutor executor, HttpRequest request,
+                         ResponseHandler<T> handler, ResultListener<T> listener) {
+            super(body);
+            this.executor = executor;
+            this.request = request;
+            this.handler = handler;
+            this.listener = listener;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            HttpURLConnection active = connection;
+            if (cancelled && active != null) {
+                active.disconnect();
+            }
+            return cancelled;
+        }
+
+        void fail(Exception error) {
+            setException(error);
+        }
+
+        @Override
+        protected void done() {
+            if (listener == null || isCancelled()) {
+                return;
+            }
+            T result;
+            try {
+                result = get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof ExpectedFailure) {
+                    Log.d(TAG, "Request ended: " + request + ": " + cause.getMessage());
+                } else {
+                    Log.e(TAG, "Request failed: " + request, cause);
+                }
+                listener.onFailure(cause instanceof Exception ? (Exception) cause : e);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            listener.onResult(result);
+        }
+    }
+
+    private static final class CallBody<T> implements Callable<T> {
+        HttpCall<T> owner;
+
+        @Override
+        public T call() throws Exception {
+            return owner.executor.perform(owner);
+        }
+    }
+
+    private static final class NetworkThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "FireVision-http-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
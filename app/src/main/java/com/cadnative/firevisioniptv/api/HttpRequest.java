@@ -0,0 +1,78 @@
+package com.cadnative.firevisioniptv.api;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Description of a single HTTP call executed by {@link HttpExecutor}.
+ * Either targets an absolute URL, or a path that is resolved against the
+ * endpoint an {@link EndpointSelector} picks for each attempt.
+ */
+public final class HttpRequest {
+    private static final int DEFAULT_CONNECT_TIMEOUT = 15000; // 15 seconds
+    private static final int DEFAULT_READ_TIMEOUT = 30000; // 30 seconds
+
+    final String url; // path when endpoints is set
+    final EndpointSelector endpoints;
+    final String method;
+    final byte[] body;
+    final Map<String, String> headers = new LinkedHashMap<>();
+    int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    int readTimeout = DEFAULT_READ_TIMEOUT;
+    RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+
+    private HttpRequest(String method, EndpointSelector endpoints, String url, byte[] body) {
+        this.method = method;
+        this.endpoints = endpoints;
+        this.url = url;
+        this.body = body;
+    }
+
+    public static HttpRequest get(String url) {
+        return new HttpRequest("GET", null, url, null);
+    }
+
+    public static HttpRequest get(EndpointSelector endpoints, String path) {
+        return new HttpRequest("GET", endpoints, path, null);
+    }
+
+    public static HttpRequest head(String url) {
+        return new HttpRequest("HEAD", null, url, null);
+    }
+
+    public static HttpRequest postJson(String url, String json) {
+        return postJson(null, url, json);
+    }
+
+    public static HttpRequest postJson(EndpointSelector endpoints, String path, String json) {
+        return new HttpRequest("POST", endpoints, path, json.getBytes(StandardCharsets.UTF_8))
+                .header("Content-Type", "application/json");
+    }
+
+    public HttpRequest header(String name, String value) {
+        if (value != null) {
+            headers.put(name, value);
+        }
+        return this;
+    }
+
+    public HttpRequest timeouts(int connectTimeoutMs, int readTimeoutMs) {
+        this.connectTimeout = connectTimeoutMs;
+        this.readTimeout = readTimeoutMs;
+        return this;
+    }
+
+    /**
+     * Override the retry policy; only applies to idempotent methods
+     */
+    public HttpRequest retry(RetryPolicy policy) {
+        this.retryPolicy = policy;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + url;
+    }
+}
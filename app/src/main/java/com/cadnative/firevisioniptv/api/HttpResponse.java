@@ -0,0 +1,199 @@
+package com.cadnative.firevisioniptv.api;
+
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.HttpURLConnection;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Response handed to a {@link HttpExecutor.ResponseHandler}.
+ * The body is decompressed on the fly when the server used gzip or deflate,
+ * and the compressed and decompressed byte counts are logged when it is closed.
+ * Closing the body (or letting the executor release it) drains any unread
+ * bytes first, so the underlying keep-alive connection goes back to the pool.
+ */
+public final class HttpResponse {
+    private static final String TAG = "HttpResponse";
+    // Beyond this many unread bytes it is cheaper to drop the socket than to drain it
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    private final HttpRequest request;
+    private final HttpURLConnection connection;
+    private final int code;
+    private final long latencyMs;
+    private InputStream body;
+    private CountingInputStream wireCounter;
+    private CountingInputStream decodedCounter;
+
+    HttpResponse(HttpRequest request, HttpURLConnection connection, int code, long latencyMs) {
+        this.request = request;
+        this.connection = connection;
+        this.code = code;
+        this.latencyMs = latencyMs;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    /**
+     * Time from opening the connection until the status line arrived
+     */
+    public long latencyMs() {
+        return latencyMs;
+    }
+
+    public String header(String name) {
+        return connection.getHeaderField(name);
+    }
+
+    /**
+     * Decoded response body stream; the error stream for 4xx/5xx responses
+     */
+    public InputStream body() throws IOException {
+        if (body == null) {
+            InputStream raw = code >= HttpURLConnection.HTTP_BAD_REQUEST
+                    ? connection.getErrorStream()
+                    : connection.getInputStream();
+            wireCounter = new CountingInputStream(raw != null ? raw : new ByteArrayInputStream(new byte[0]));
+            // HEAD, 204 and 304 carry no body even when the headers announce an encoding
+            boolean hasBody = !"HEAD".equals(request.method)
+                    && code != HttpURLConnection.HTTP_NO_CONTENT && code != HttpURLConnection.HTTP_NOT_MODIFIED;
+            decodedCounter = new CountingInputStream(
+                    hasBody ? decode(wireCounter, header("Content-Encoding")) : wireCounter);
+            body = new ReusableBodyStream(decodedCounter);
+        }
+        return body;
+    }
+
+    private static InputStream decode(InputStream in, String contentEncoding) throws IOException {
+        if (contentEncoding == null) {
+            return in;
+        }
+        String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        if ("gzip".equals(encoding) || "x-gzip".equals(encoding)) {
+            return new GZIPInputStream(in, 8192);
+        }
+        if ("deflate".equals(encoding)) {
+            // "deflate" should be zlib-wrapped, but some servers send a raw deflate stream
+            PushbackInputStream pushback = new PushbackInputStream(in, 2);
+            int cmf = pushback.read();
+            int flg = pushback.read();
+            if (flg != -1) {
+                pushback.unread(flg);
+            }
+            if (cmf != -1) {
+                pushback.unread(cmf);
+            }
+            boolean zlibWrapped = cmf != -1 && flg != -1
+                    && (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+            return new InflaterInputStream(pushback, new Inflater(!zlibWrapped), 8192);
+        }
+        return in;
+    }
+
+    private void logTransfer() {
+        long wire = wireCounter.count;
+        long decoded = decodedCounter.count;
+        String encoding = header("Content-Encoding");
+        if (encoding != null && decoded > 0 && wire != decoded) {
+            Log.d(TAG, request + ": " + wire + " bytes on the wire, " + decoded + " decoded ("
+                    + encoding + ", saved " + (100 - (wire * 100 / decoded)) + "%)");
+        } else if (decoded > 0) {
+            Log.d(TAG, request + ": " + decoded + " bytes, uncompressed");
+        }
+    }
+
+    /**
+     * Called by the executor once the handler is done with the response
+     */
+    void release() {
+        try {
+            body().close();
+        } catch (IOException e) {
+            // Connection is not reusable; drop it rather than pooling a broken socket
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Drains unread bytes on close so HttpURLConnection can reuse the socket
+     */
+    private final class ReusableBodyStream extends FilterInputStream {
+        private boolean closed;
+
+        ReusableBodyStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            boolean drainedFully = false;
+            try {
+                byte[] buffer = new byte[4096];
+                int drained = 0;
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    drained += read;
+                    if (drained > MAX_DRAIN_BYTES) {
+                        return; // cheaper to drop the socket than to read the rest
+                    }
+                }
+                drainedFully = true;
+            } finally {
+                logTransfer();
+                if (!drainedFully) {
+                    connection.disconnect();
+                }
+                // Always close, so a decompressing stream ends its native Inflater now rather than at GC
+                in.close();
+            }
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
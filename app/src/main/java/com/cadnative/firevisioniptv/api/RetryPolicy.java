@@ -0,0 +1,66 @@
+package com.cadnative.firevisioniptv.api;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How often and how quickly {@link HttpExecutor} retries a failed request.
+ * Uses exponential backoff with full jitter, so clients that failed together
+ * do not all come back at the same moment. Only idempotent methods are retried.
+ */
+public final class RetryPolicy {
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 500, 8000);
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    public RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    /**
+     * Whether the request may be sent again without side effects on the server
+     */
+    static boolean isIdempotent(HttpRequest request) {
+        switch (request.method) {
+            case "GET":
+            case "HEAD":
+            case "PUT":
+            case "DELETE":
+            case "OPTIONS":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Status codes that indicate a transient server-side problem
+     */
+    static boolean isRetryableStatus(int code) {
+        return code == HTTP_TOO_MANY_REQUESTS
+                || code == 500 || code == 502 || code == 503 || code == 504;
+    }
+
+    /**
+     * Delay before the given retry (1 = first retry), honouring a Retry-After in seconds if present
+     */
+    long delayBeforeRetry(int retry, String retryAfter) {
+        long capped = Math.min(maxDelayMs, baseDelayMs << Math.min(retry - 1, 16));
+        long delay = capped > 0 ? ThreadLocalRandom.current().nextLong(capped + 1) : 0;
+        if (retryAfter != null) {
+            try {
+                long serverDelay = Long.parseLong(retryAfter.trim()) * 1000;
+                delay = Math.max(delay, Math.min(serverDelay, maxDelayMs));
+            } catch (NumberFormatException ignored) {
+                // HTTP-date form; fall back to our own backoff
+            }
+        }
+        return delay;
+    }
+}
@@ -0,0 +1,40 @@
+package com.cadnative.firevisioniptv.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coalesces concurrent requests for the same key into a single in-flight call.
+ * The first caller for a key starts the work; later callers only register their
+ * callback and are handed the same result when the call completes.
+ */
+public final class SingleFlight<K, C> {
+    private final Map<K, List<C>> inFlight = new HashMap<>();
+
+    /**
+     * Register a callback for the key.
+     * Returns true if the caller is first and must start the call itself.
+     */
+    public synchronized boolean join(K key, C callback) {
+        List<C> waiting = inFlight.get(key);
+        if (waiting != null) {
+            waiting.add(callback);
+            return false;
+        }
+        waiting = new ArrayList<>();
+        waiting.add(callback);
+        inFlight.put(key, waiting);
+        return true;
+    }
+
+    /**
+     * Finish the call for the key and return every callback waiting on it
+     */
+    public synchronized List<C> complete(K key) {
+        List<C> waiting = inFlight.remove(key);
+        return waiting != null ? waiting : Collections.emptyList();
+    }
+}
@@ -21,12 +21,14 @@ import androidx.core.content.FileProvider;
 import com.cadnative.firevisioniptv.api.ApiClient;
 
 import java.io.File;
+import java.util.concurrent.Future;
 
 public class UpdateManager {
     private static final String TAG = "UpdateManager";
     private final Activity activity;
     private long downloadId = -1;
     private BroadcastReceiver downloadReceiver;
+    private Future<?> versionCheck;
 
     public UpdateManager(Activity activity) {
         this.activity = activity;
@@ -38,7 +40,7 @@ public class UpdateManager {
     public void checkForUpdates(boolean showNoUpdateDialog) {
         int currentVersionCode = getCurrentVersionCode();
 
-        ApiClient.checkForUpdates(activity, currentVersionCode, new ApiClient.AppVersionCallback() {
+        versionCheck = ApiClient.checkForUpdates(activity, currentVersionCode, new ApiClient.AppVersionCallback() {
             @Override
             public void onSuccess(ApiClient.AppVersionInfo versionInfo) {
                 activity.runOnUiThread(() -> {
@@ -230,6 +232,9 @@ public class UpdateManager {
      * Cleanup receivers
      */
     public void cleanup() {
+        if (versionCheck != null) {
+            versionCheck.cancel(true);
+        }
         if (downloadReceiver != null) {
             try {
                 activity.unregisterReceiver(downloadReceiver);
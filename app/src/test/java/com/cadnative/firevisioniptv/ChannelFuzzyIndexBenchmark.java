@@ -0,0 +1,93 @@
+package com.cadnative.firevisioniptv;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Query latency of the typo-tolerant search at 50k channels, through the same
+ * popularity snapshot the search screen uses. Wall-clock numbers depend on the
+ * machine, so this only runs when asked for: ./gradlew testDebugUnitTest -Pbenchmark
+ */
+public class ChannelFuzzyIndexBenchmark {
+    private static final int CHANNELS = 50_000;
+    private static final int QUERIES = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void p99QueryLatencyIsAFewMilliseconds() throws Exception {
+        assumeTrue("Benchmarks run with -Pbenchmark", Boolean.getBoolean("benchmark"));
+
+        Random random = new Random(42);
+        String[] syllables = {"ka", "ra", "zee", "sta", "mo", "vi", "ne", "tu", "sho", "ba", "li", "pro",
+                "max", "go", "ha", "de", "no", "ri", "sa", "te"};
+        ChannelStore.Builder builder = new ChannelStore.Builder(CHANNELS);
+        String[] names = new String[CHANNELS];
+        for (int i = 0; i < CHANNELS; i++) {
+            StringBuilder name = new StringBuilder();
+            int wordCount = 1 + random.nextInt(3);
+            for (int w = 0; w < wordCount; w++) {
+                if (w > 0) {
+                    name.append(' ');
+                }
+                int length = 2 + random.nextInt(3);
+                for (int s = 0; s < length; s++) {
+                    name.append(syllables[random.nextInt(syllables.length)]);
+                }
+            }
+            names[i] = name.toString();
+            builder.add(i, "id" + i, names[i], "http://streams.example/" + i, null, "News", "English", null);
+        }
+        ChannelStore store = builder.build();
+        ChannelFuzzyIndex index = ChannelFuzzyIndex.of(store);
+
+        // A viewing history over a few thousand channels
+        UsageStats usage = new UsageStats(new File(folder.getRoot(), "usage.log"), System::currentTimeMillis);
+        for (int i = 0; i < 3000; i++) {
+            usage.recordPlay("id" + random.nextInt(CHANNELS));
+        }
+        usage.awaitIdle();
+
+        // Queries are channel names with one typo each, as typed on a remote
+        String[] queries = new String[QUERIES];
+        for (int i = 0; i < queries.length; i++) {
+            char[] chars = names[random.nextInt(names.length)].toCharArray();
+            int typo = random.nextInt(chars.length);
+            if (chars[typo] != ' ') {
+                chars[typo] = (char) ('a' + random.nextInt(26));
+            }
+            queries[i] = new String(chars);
+        }
+
+        // An untimed pass warms up the JIT
+        for (String query : queries) {
+            assertNotNull(search(index, usage, store, query));
+        }
+        long[] nanos = new long[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            long started = System.nanoTime();
+            search(index, usage, store, queries[i]);
+            nanos[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(nanos);
+        double p50Ms = nanos[nanos.length / 2] / 1e6;
+        double p99Ms = nanos[(int) (nanos.length * 0.99)] / 1e6;
+        System.out.println("Fuzzy search at " + CHANNELS + " channels: p50 " + p50Ms + "ms, p99 " + p99Ms + "ms");
+        assertTrue("p99 " + p99Ms + "ms", p99Ms < 5);
+    }
+
+    private static int[] search(ChannelFuzzyIndex index, UsageStats usage, ChannelStore store, String query) {
+        double[] popularity = usage.getPopularity(store);
+        return index.search(query, 50, position -> popularity[position], () -> false);
+    }
+}
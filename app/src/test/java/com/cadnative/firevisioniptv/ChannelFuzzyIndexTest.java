@@ -0,0 +1,130 @@
+package com.cadnative.firevisioniptv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Ranking and top-K bounds of the typo-tolerant channel search
+ */
+public class ChannelFuzzyIndexTest {
+    private static final BooleanSupplier NOT_CANCELLED = () -> false;
+    private static final IntToDoubleFunction UNUSED = position -> 0;
+
+    private static ChannelStore store(String... names) {
+        ChannelStore.Builder builder = new ChannelStore.Builder(names.length);
+        for (int i = 0; i < names.length; i++) {
+            builder.add(i, "id" + i, names[i], "http://streams.example/" + i, null, "News", "English", null);
+        }
+        return builder.build();
+    }
+
+    private static int[] search(ChannelStore store, String query, int limit, IntToDoubleFunction popularity) {
+        int[] positions = ChannelFuzzyIndex.of(store).search(query, limit, popularity, NOT_CANCELLED);
+        assertNotNull(positions);
+        return positions;
+    }
+
+    @Test
+    public void fewerEditsRankFirst() {
+        ChannelStore store = store("Discavary Kids", "Discovary Kids", "Discovery Kids");
+
+        // Distance outranks popularity, however popular the closer typo is
+        int[] positions = search(store, "discovery", 10, position -> position == 0 ? 1000 : 0);
+
+        assertArrayEquals(new int[]{2, 1, 0}, positions);
+    }
+
+    @Test
+    public void firstWordMatchBreaksDistanceTies() {
+        ChannelStore store = store("Star Sports", "Sports Star");
+
+        int[] positions = search(store, "sprts", 10, position -> position == 0 ? 1000 : 0);
+
+        assertArrayEquals(new int[]{1, 0}, positions);
+    }
+
+    @Test
+    public void firstWordEarnsTheBonusWhenAnotherWordMatchesAsClosely() {
+        // "sport" and "sports" are both one edit from the query
+        ChannelStore store = store("Sports Sport", "Sport Sports", "Star Sport");
+
+        int[] positions = search(store, "sportz", 10, position -> position);
+
+        assertArrayEquals(new int[]{1, 0, 2}, positions);
+    }
+
+    @Test
+    public void popularityBreaksRemainingTies() {
+        ChannelStore store = store("Zee Cinema", "Sony Cinema", "Star Cinema");
+
+        int[] positions = search(store, "cinemma", 10, position -> position);
+
+        assertArrayEquals(new int[]{2, 1, 0}, positions);
+    }
+
+    @Test
+    public void everyQueryWordMustMatch() {
+        ChannelStore store = store("Star Sports", "Star Movies", "Sony Sports");
+
+        assertArrayEquals(new int[]{0}, search(store, "star sprots", 10, UNUSED));
+        assertArrayEquals(new int[0], search(store, "sony movies", 10, UNUSED));
+    }
+
+    @Test
+    public void shortWordsMustMatchExactly() {
+        ChannelStore store = store("Zee News", "Zed News");
+
+        assertArrayEquals(new int[]{0}, search(store, "zee", 10, UNUSED));
+    }
+
+    @Test
+    public void resultsAreBoundedByTheLimitAndKeepTheBest() {
+        String[] names = new String[200];
+        Arrays.fill(names, "Cartoon Network");
+        ChannelStore store = store(names);
+
+        // Popularity rises with position, so the best ten are the last ten, most popular first
+        int[] positions = search(store, "cartoom", 10, position -> position);
+
+        assertArrayEquals(new int[]{199, 198, 197, 196, 195, 194, 193, 192, 191, 190}, positions);
+        assertEquals(200, search(store, "cartoom", 500, UNUSED).length);
+        assertEquals(0, search(store, "cartoom", 0, UNUSED).length);
+    }
+
+    @Test
+    public void popularityIsOnlyReadForCandidatesThatCanGetIn() {
+        String[] names = new String[103];
+        Arrays.fill(names, "Travek XP");
+        names[0] = names[1] = names[2] = "Travel XP";
+        ChannelStore store = store(names);
+        AtomicInteger reads = new AtomicInteger();
+
+        // Three exact matches fill the results; the hundred one-edit matches can never beat them
+        int[] positions = search(store, "travel", 3, position -> reads.incrementAndGet());
+
+        assertArrayEquals(new int[]{2, 1, 0}, positions);
+        assertEquals(3, reads.get());
+    }
+
+    @Test
+    public void tiesKeepListOrder() {
+        ChannelStore store = store("Travel XP", "Travel XP", "Travel XP");
+
+        assertArrayEquals(new int[]{0, 1, 2}, search(store, "travl", 10, UNUSED));
+    }
+
+    @Test
+    public void cancelledSearchReturnsNull() {
+        ChannelStore store = store("Travel XP");
+
+        assertEquals(null, ChannelFuzzyIndex.of(store).search("travl", 10, UNUSED, () -> true));
+    }
+}
@@ -0,0 +1,128 @@
+package com.cadnative.firevisioniptv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Trigram lookup and incremental narrowing of the substring channel search
+ */
+public class ChannelSearchIndexTest {
+    private static final BooleanSupplier NOT_CANCELLED = () -> false;
+
+    private static ChannelStore store(String[] names, String[] groups) {
+        ChannelStore.Builder builder = new ChannelStore.Builder(names.length);
+        for (int i = 0; i < names.length; i++) {
+            builder.add(i, "id" + i, names[i], "http://streams.example/" + i, null, groups[i], "English", null);
+        }
+        return builder.build();
+    }
+
+    private static ChannelSearchIndex index(String... names) {
+        String[] groups = new String[names.length];
+        Arrays.fill(groups, "General");
+        return ChannelSearchIndex.of(store(names, groups));
+    }
+
+    /**
+     * Cancellation check that counts how often the search looks at it
+     */
+    private static final class CountingCheck implements BooleanSupplier {
+        final AtomicInteger checks = new AtomicInteger();
+
+        @Override
+        public boolean getAsBoolean() {
+            checks.incrementAndGet();
+            return false;
+        }
+    }
+
+    @Test
+    public void findsSubstringsIgnoringCaseAndAccents() {
+        ChannelSearchIndex index = index("Star Sports", "Télé Monte Carlo", "Sports18", "Zee News");
+
+        assertArrayEquals(new int[]{0, 2}, index.search("SPORTS"));
+        assertArrayEquals(new int[]{1}, index.search("tele mon"));
+        assertArrayEquals(new int[]{0, 2}, index.search("or"));
+        assertArrayEquals(new int[0], index.search("sportz"));
+        assertArrayEquals(new int[0], index.search("  "));
+    }
+
+    @Test
+    public void everyTrigramOfTheQueryMustBeInTheName() {
+        // All share "new" and "ews"; only some also have "ws ", "s n" and " na"/" no"
+        ChannelSearchIndex index = index("News Nation", "Newsmax", "ABP News", "News Now");
+
+        assertArrayEquals(new int[]{0, 3}, index.search("news n"));
+        assertArrayEquals(new int[]{1}, index.search("newsmax"));
+    }
+
+    @Test
+    public void matchingGroupBringsInAllItsChannels() {
+        ChannelSearchIndex index = ChannelSearchIndex.of(store(
+                new String[]{"Star Plus", "Colors", "Aaj Tak", "Sony"},
+                new String[]{"Entertainment", "Entertainment", "News", null}));
+
+        assertArrayEquals(new int[]{0, 1}, index.search("entertain"));
+        assertArrayEquals(new int[]{2}, index.search("news"));
+    }
+
+    @Test
+    public void growingQueryNarrowsThePreviousResults() {
+        String[] names = new String[5000];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = i % 500 == 0 ? "Xtra " + i : "Channel " + i;
+        }
+        ChannelSearchIndex index = index(names);
+        ChannelSearchIndex.Session session = new ChannelSearchIndex.Session();
+
+        CountingCheck full = new CountingCheck();
+        int[] first = session.search(index, "x", full);
+        CountingCheck narrowed = new CountingCheck();
+        int[] second = session.search(index, "xt", narrowed);
+
+        // Both queries are too short for trigrams: the first scans all 5000 names,
+        // the second only the matches of the first
+        assertEquals(10, first.length);
+        assertEquals(5, full.checks.get());
+        assertEquals(1, narrowed.checks.get());
+        assertArrayEquals(index.search("xt"), second);
+        assertEquals(10, second.length);
+    }
+
+    @Test
+    public void shorterOrDifferentQuerySearchesEverythingAgain() {
+        ChannelSearchIndex index = index("Star Sports", "Star Movies", "Sony Max");
+        ChannelSearchIndex.Session session = new ChannelSearchIndex.Session();
+
+        assertArrayEquals(new int[]{0}, session.search(index, "star sp", NOT_CANCELLED));
+        assertArrayEquals(new int[]{0, 1}, session.search(index, "star", NOT_CANCELLED));
+        assertArrayEquals(new int[]{2}, session.search(index, "max", NOT_CANCELLED));
+    }
+
+    @Test
+    public void newStoreIsNotNarrowedFromTheOldResults() {
+        ChannelSearchIndex.Session session = new ChannelSearchIndex.Session();
+        session.search(index("Star Sports", "Sony Max"), "s", NOT_CANCELLED);
+
+        ChannelSearchIndex reloaded = index("Zee Cinema", "Star Gold", "Star Sports");
+
+        assertArrayEquals(new int[]{1, 2}, session.search(reloaded, "st", NOT_CANCELLED));
+    }
+
+    @Test
+    public void cancelledSearchKeepsTheLastCompleteResults() {
+        ChannelSearchIndex index = index("Star Sports", "Star Movies", "Sony Max");
+        ChannelSearchIndex.Session session = new ChannelSearchIndex.Session();
+        session.search(index, "star", NOT_CANCELLED);
+
+        assertNull(session.search(index, "star m", () -> true));
+        assertArrayEquals(new int[]{1}, session.search(index, "star mo", NOT_CANCELLED));
+    }
+}
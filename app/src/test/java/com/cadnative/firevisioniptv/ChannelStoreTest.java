@@ -0,0 +1,115 @@
+package com.cadnative.firevisioniptv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Sort permutations of the channel store and the browse rows built from them
+ */
+public class ChannelStoreTest {
+
+    private static ChannelStore store(String[] names, String[] groups) {
+        ChannelStore.Builder builder = new ChannelStore.Builder(names.length);
+        for (int i = 0; i < names.length; i++) {
+            builder.add(i, "id" + i, names[i], "http://streams.example/" + i, null, groups[i], "English", null);
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void nameOrderIgnoresCaseKeepsTiesInListOrderAndPutsMissingNamesLast() {
+        ChannelStore store = store(
+                new String[]{"zee", null, "Alpha", "beta", "alpha", "Beta"},
+                new String[]{"g", "g", "g", "g", "g", "g"});
+
+        assertArrayEquals(new int[]{2, 4, 3, 5, 0, 1}, store.getNameOrder());
+    }
+
+    @Test
+    public void groupOrderKeepsEachGroupTogetherWithUngroupedChannelsLast() {
+        ChannelStore store = store(
+                new String[]{"a", "b", "c", "d", "e", "f"},
+                new String[]{"Sports", null, "news", "Sports", "News", "movies"});
+
+        // "News" and "news" tie ignoring case and stay separate runs
+        assertArrayEquals(new int[]{5, 4, 2, 0, 3, 1}, store.getGroupOrder());
+    }
+
+    @Test
+    public void permutationsMatchAReferenceSortOnRandomLists() {
+        Random random = new Random(3);
+        String[] words = {"Star", "star", "Zee", "news", "News", "Sony", "sports", "É", "e", "", null};
+        String[] names = new String[2000];
+        String[] groups = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            String first = words[random.nextInt(words.length)];
+            names[i] = first == null ? null : first + " " + words[random.nextInt(words.length - 1)];
+            groups[i] = words[random.nextInt(words.length)];
+        }
+        ChannelStore store = store(names, groups);
+
+        Integer[] byName = positions(names.length);
+        Arrays.sort(byName, Comparator.comparing((Integer p) -> names[p],
+                Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+        assertArrayEquals(unbox(byName), store.getNameOrder());
+
+        Integer[] byGroup = positions(names.length);
+        Arrays.sort(byGroup, Comparator.comparing((Integer p) -> groups[p],
+                Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder()))));
+        assertArrayEquals(unbox(byGroup), store.getGroupOrder());
+    }
+
+    @Test
+    public void sortByNameOrdersASubsetLikeTheNameOrder() {
+        ChannelStore store = store(
+                new String[]{"Zee", "Colors", "aaj tak", "Sony", "ABP"},
+                new String[]{"g", "g", "g", "g", "g"});
+        int[] positions = {0, 1, 3, 4};
+
+        store.sortByName(positions);
+
+        assertArrayEquals(new int[]{4, 1, 3, 0}, positions);
+    }
+
+    @Test
+    public void browseRowsFollowTheGroupOrderWithUncategorizedLast() {
+        ChannelStore store = store(
+                new String[]{"a", "b", "c", "d", "e", "f", "g"},
+                new String[]{"Sports", "General", "news", null, "Movies", "Sports", "Other"});
+
+        List<String> titles = new ArrayList<>();
+        List<int[]> positions = new ArrayList<>();
+        for (ChannelFacetIndex.BrowseRow row : ChannelFacetIndex.of(store.asList()).getBrowseRows()) {
+            titles.add(row.title);
+            positions.add(row.positions);
+        }
+
+        assertEquals(Arrays.asList("Movies", "news", "Sports", ChannelFacetIndex.UNCATEGORIZED), titles);
+        assertArrayEquals(new int[]{0, 5}, positions.get(2));
+        assertArrayEquals(new int[]{1, 3, 6}, positions.get(3));
+    }
+
+    private static Integer[] positions(int size) {
+        Integer[] positions = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = i;
+        }
+        return positions;
+    }
+
+    private static int[] unbox(Integer[] values) {
+        int[] result = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,65 @@
+package com.cadnative.firevisioniptv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Folding, transliteration and loosening of search keys
+ */
+public class SearchKeysTest {
+
+    private static String latin(String name) {
+        return SearchKeys.transliterate(SearchKeys.fold(name));
+    }
+
+    @Test
+    public void foldRemovesCaseAccentsAndSurroundingSpace() {
+        assertEquals("tele ecole", SearchKeys.fold("  Télé ÉCOLE "));
+        assertEquals("strasse oresund", SearchKeys.fold("Straße Øresund"));
+        assertEquals("star sports 1", SearchKeys.fold("STAR Sports 1"));
+        assertEquals("", SearchKeys.fold(null));
+    }
+
+    @Test
+    public void foldKeepsOtherScriptsIntact() {
+        // Vowel signs are combining marks too, but belong to the letter
+        assertEquals("समाचार", SearchKeys.fold("समाचार"));
+    }
+
+    @Test
+    public void transliteratesDevanagari() {
+        assertEquals("samachar", latin("समाचार"));
+        assertEquals("aj tak", latin("आज तक"));
+        assertEquals("star plas", latin("स्टार प्लस"));
+        assertEquals("ji nyuj", latin("ज़ी न्यूज़"));
+        assertEquals("um tivi", latin("ॐ टीवी"));
+    }
+
+    @Test
+    public void namesWithoutDevanagariHaveNoTransliteration() {
+        assertNull(latin("Zee News"));
+        assertFalse(SearchKeys.hasDevanagari("Télé"));
+        assertTrue(SearchKeys.hasDevanagari("Zee हिंदी"));
+    }
+
+    @Test
+    public void looseQueriesFindHindiNames() {
+        assertTrue(latin("ज़ी सिनेमा").contains(SearchKeys.loosen("zee sinema")));
+        assertTrue(latin("ज़ी न्यूज़").startsWith(SearchKeys.loosen("jee")));
+        assertTrue(latin("आज तक").contains(SearchKeys.loosen("aaj tak")));
+    }
+
+    @Test
+    public void loosenKeepsContainmentAsTheQueryGrows() {
+        String query = "zee news";
+        for (int i = 1; i < query.length(); i++) {
+            String shorter = SearchKeys.loosen(query.substring(0, i));
+            assertTrue(shorter, SearchKeys.loosen(query).startsWith(shorter));
+        }
+        assertEquals("ji nivs", SearchKeys.loosen("zee news"));
+    }
+}
@@ -0,0 +1,151 @@
+package com.cadnative.firevisioniptv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Log replay, recovery, compaction and decay of the usage-stats store
+ */
+public class UsageStatsTest {
+    private static final long START = 1_700_000_000_000L;
+    private static final long WEEK = TimeUnit.DAYS.toMillis(7);
+    private static final double DELTA = 1e-9;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong now = new AtomicLong(START);
+    private File logFile;
+
+    @Before
+    public void setUp() {
+        logFile = new File(folder.getRoot(), "usage.log");
+    }
+
+    private UsageStats open() throws InterruptedException {
+        UsageStats stats = new UsageStats(logFile, now::get);
+        stats.awaitIdle();
+        return stats;
+    }
+
+    @Test
+    public void replayRestoresTotalsFromTheLog() throws Exception {
+        UsageStats stats = open();
+        stats.recordPlay("news");
+        stats.recordPlay("news");
+        stats.recordPlay("sports");
+        now.addAndGet(TimeUnit.MINUTES.toMillis(1));
+        stats.recordWatch("sports", TimeUnit.MINUTES.toMillis(30));
+        stats.recordSearchClick("movies");
+        stats.awaitIdle();
+
+        UsageStats reloaded = open();
+        assertEquals(stats.getPopularity("news"), reloaded.getPopularity("news"), DELTA);
+        assertEquals(stats.getPopularity("sports"), reloaded.getPopularity("sports"), DELTA);
+        assertEquals(stats.getPopularity("movies"), reloaded.getPopularity("movies"), DELTA);
+        assertEquals(Arrays.asList("sports", "news", "movies"), reloaded.getPopularChannels(10));
+        assertEquals(Collections.singletonList("sports"), reloaded.getContinueWatching(10));
+    }
+
+    @Test
+    public void tornFinalRecordIsDroppedAndTheLogStaysUsable() throws Exception {
+        UsageStats stats = open();
+        stats.recordPlay("news");
+        stats.recordPlay("sports");
+        stats.awaitIdle();
+        double news = stats.getPopularity("news");
+
+        // A crash mid-append leaves the type byte and part of the channel ID
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write(new byte[]{1, 0, 10, 'k', 'i'});
+        }
+
+        UsageStats recovered = open();
+        assertEquals(news, recovered.getPopularity("news"), DELTA);
+        assertEquals(0, recovered.getPopularity("ki"), DELTA);
+        recovered.recordPlay("kids");
+        recovered.awaitIdle();
+
+        // Events recorded after the recovery are read back too
+        UsageStats reloaded = open();
+        assertEquals(news, reloaded.getPopularity("news"), DELTA);
+        assertEquals(recovered.getPopularity("kids"), reloaded.getPopularity("kids"), DELTA);
+        assertEquals(3, reloaded.getPopularChannels(10).size());
+    }
+
+    @Test
+    public void compactionKeepsTotalsAndForgetsLongUnusedChannels() throws Exception {
+        UsageStats stats = open();
+        stats.recordPlay("old");
+        stats.awaitIdle();
+        now.addAndGet(TimeUnit.DAYS.toMillis(120));
+
+        // The 256th appended event triggers compaction
+        for (int i = 0; i < 255; i++) {
+            stats.recordPlay("news");
+        }
+        stats.awaitIdle();
+        double news = stats.getPopularity("news");
+
+        // 256 event records take almost 6KB; compacted, the log is a header and one totals record
+        assertTrue("log not compacted: " + logFile.length() + " bytes", logFile.length() < 100);
+        UsageStats reloaded = open();
+        assertEquals(news, reloaded.getPopularity("news"), 1e-6);
+        assertEquals(0, reloaded.getPopularity("old"), DELTA);
+        assertEquals(Collections.singletonList("news"), reloaded.getPopularChannels(10));
+    }
+
+    @Test
+    public void popularityHalvesEveryWeek() throws Exception {
+        UsageStats stats = open();
+        stats.recordPlay("news");
+        stats.awaitIdle();
+        assertEquals(1.0, stats.getPopularity("news"), DELTA);
+
+        now.addAndGet(WEEK);
+        assertEquals(0.5, stats.getPopularity("news"), DELTA);
+        now.addAndGet(WEEK);
+        assertEquals(0.25, stats.getPopularity("news"), DELTA);
+    }
+
+    @Test
+    public void recentUseOutranksOlderHeavierUse() throws Exception {
+        UsageStats stats = open();
+        for (int i = 0; i < 3; i++) {
+            stats.recordPlay("old favourite");
+        }
+        stats.awaitIdle();
+        now.addAndGet(3 * WEEK); // 3 plays decay to 0.375
+        stats.recordPlay("new habit");
+        stats.awaitIdle();
+
+        assertEquals(Arrays.asList("new habit", "old favourite"), stats.getPopularChannels(10));
+    }
+
+    @Test
+    public void topQueriesReturnAtMostTheLimitBestFirst() throws Exception {
+        UsageStats stats = open();
+        for (int channel = 1; channel <= 5; channel++) {
+            for (int play = 0; play < channel; play++) {
+                stats.recordPlay("channel" + channel);
+            }
+        }
+        stats.awaitIdle();
+
+        assertEquals(Arrays.asList("channel5", "channel4"), stats.getPopularChannels(2));
+        assertEquals(5, stats.getPopularChannels(50).size());
+        assertEquals(Collections.emptyList(), stats.getPopularChannels(0));
+    }
+}
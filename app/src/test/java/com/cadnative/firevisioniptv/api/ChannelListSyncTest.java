@@ -0,0 +1,328 @@
+package com.cadnative.firevisioniptv.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cadnative.firevisioniptv.Channel;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full and delta channel list sync against a local stand-in for the server
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class ChannelListSyncTest {
+    private static final String TV_CODE = "123456";
+
+    private StandInServer server;
+    private ChannelResponseCache cache;
+    private EndpointSelector endpoints;
+    private String cacheKey;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StandInServer();
+        Context context = ApplicationProvider.getApplicationContext();
+        cache = new ChannelResponseCache(context);
+        cache.clear();
+        endpoints = EndpointSelector.getInstance();
+        endpoints.setEndpoints(Collections.singletonList(server.baseUrl()));
+        cacheKey = ChannelResponseCache.keyFor(server.baseUrl(), TV_CODE);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void fullResponseIsStoredWithItsRevision() throws Exception {
+        server.reply(200, "{\"success\":true,\"revision\":1,\"data\":["
+                + channel("a", "Alpha") + "," + channel("b", "Beta") + "]}");
+
+        List<Channel> channels = fetch();
+
+        assertEquals(Collections.singletonList(null), server.queries());
+        assertEquals("a,b", ids(channels));
+        assertEquals("Beta", channels.get(1).getChannelName());
+        assertEquals(1, cache.getRevision(cacheKey));
+        assertEquals("a,b", ids(cache.getCachedChannels(cacheKey)));
+    }
+
+    @Test
+    public void deltaAppliesAddUpdateAndRemoveToTheStoredList() throws Exception {
+        server.reply(200, "{\"success\":true,\"revision\":1,\"data\":["
+                + channel("a", "Alpha") + "," + channel("b", "Beta") + "," + channel("c", "Gamma") + "]}");
+        fetch();
+
+        server.reply(200, "{\"success\":true,\"revision\":2,\"delta\":true,\"changes\":["
+                + "{\"op\":\"remove\",\"channelId\":\"a\"},"
+                + "{\"op\":\"update\",\"channelId\":\"b\",\"channel\":" + channel("b", "Beta HD") + "},"
+                + "{\"op\":\"add\",\"channelId\":\"d\",\"channel\":" + channel("d", "Delta") + "}]}");
+        List<Channel> channels = fetch();
+
+        assertEquals("since=1", server.queries().get(1));
+        // Updates stay in place, additions go to the end
+        assertEquals("b,c,d", ids(channels));
+        assertEquals("Beta HD", channels.get(0).getChannelName());
+        assertEquals(2, cache.getRevision(cacheKey));
+        assertEquals("b,c,d", ids(cache.getCachedChannels(cacheKey)));
+    }
+
+    @Test
+    public void deltaKeepsChannelsWithoutAnIdInPlace() throws Exception {
+        server.reply(200, "{\"success\":true,\"revision\":1,\"data\":["
+                + channel("a", "Alpha") + "," + unnamedChannel("Local One") + ","
+                + unnamedChannel("Local Two") + "," + channel("b", "Beta") + "]}");
+        fetch();
+
+        server.reply(200, "{\"success\":true,\"revision\":2,\"delta\":true,\"changes\":["
+                + "{\"op\":\"remove\",\"channelId\":\"a\"},"
+                + "{\"op\":\"add\",\"channelId\":\"c\",\"channel\":" + channel("c", "Gamma") + "}]}");
+        List<Channel> channels = fetch();
+
+        assertEquals("Local One,Local Two,Beta,Gamma", names(channels));
+        assertEquals("Local One,Local Two,Beta,Gamma", names(cache.getCachedChannels(cacheKey)));
+    }
+
+    @Test
+    public void expiredRevisionFallsBackToOneFullRefresh() throws Exception {
+        server.reply(200, "{\"success\":true,\"revision\":1,\"data\":[" + channel("a", "Alpha") + "]}");
+        fetch();
+
+        server.reply(410, "{\"success\":false}");
+        server.reply(200, "{\"success\":true,\"revision\":7,\"data\":["
+                + channel("x", "Xray") + "," + channel("y", "Yankee") + "]}");
+        List<Channel> channels = fetch();
+
+        assertEquals(3, server.queries().size());
+        assertEquals("since=1", server.queries().get(1));
+        assertNull(server.queries().get(2));
+        assertEquals("x,y", ids(channels));
+        assertEquals(7, cache.getRevision(cacheKey));
+    }
+
+    @Test
+    public void matchingValidatorsAnswerNotModified() throws Exception {
+        server.validators("\"v1\"", "Tue, 01 Oct 2024 10:00:00 GMT");
+        server.reply(200, "{\"success\":true,\"revision\":1,\"data\":[" + channel("a", "Alpha") + "]}");
+        fetch();
+
+        assertNull(server.ifNoneMatch().get(0));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        Answer answer = answer();
+
+        assertTrue(answer.notModified);
+        assertNull(answer.channels);
+        assertEquals("\"v1\"", server.ifNoneMatch().get(1));
+        assertEquals("Tue, 01 Oct 2024 10:00:00 GMT", server.ifModifiedSince().get(1));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals("a", ids(cache.getCachedChannels(cacheKey)));
+    }
+
+    @Test
+    public void changedValidatorsDownloadTheListAgain() throws Exception {
+        server.validators("\"v1\"", null);
+        server.reply(200, "{\"success\":true,\"revision\":1,\"data\":[" + channel("a", "Alpha") + "]}");
+        fetch();
+
+        server.validators("\"v2\"", null);
+        server.reply(200, "{\"success\":true,\"revision\":2,\"delta\":true,\"changes\":["
+                + "{\"op\":\"add\",\"channelId\":\"b\",\"channel\":" + channel("b", "Beta") + "}]}");
+        List<Channel> channels = fetch();
+
+        assertEquals("\"v1\"", server.ifNoneMatch().get(1));
+        assertNull(server.ifModifiedSince().get(1));
+        assertEquals("a,b", ids(channels));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        // The new validator was stored with the merged list
+        assertTrue(answer().notModified);
+        assertEquals("\"v2\"", server.ifNoneMatch().get(2));
+    }
+
+    private List<Channel> fetch() throws InterruptedException {
+        Answer answer = answer();
+        assertNull(answer.error);
+        assertFalse("unexpected 304", answer.notModified);
+        assertNotNull(answer.channels);
+        return answer.channels;
+    }
+
+    private Answer answer() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Answer answer = new Answer();
+        ApiClient.fetchChannelList(cache, endpoints, TV_CODE, cacheKey, new ApiClient.ChannelListCallback() {
+            @Override
+            public void onSuccess(List<Channel> channels) {
+                answer.channels = channels;
+                done.countDown();
+            }
+
+            @Override
+            public void onNotModified() {
+                answer.notModified = true;
+                done.countDown();
+            }
+
+            @Override
+            public void onError(String error) {
+                answer.error = error;
+                done.countDown();
+            }
+        });
+        assertTrue("no answer from the channel list request", done.await(10, TimeUnit.SECONDS));
+        return answer;
+    }
+
+    private static String channel(String id, String name) {
+        return "{\"channelId\":\"" + id + "\",\"channelName\":\"" + name + "\","
+                + "\"channelUrl\":\"http://streams.example/" + id + ".m3u8\","
+                + "\"channelGroup\":\"News\",\"metadata\":{\"language\":\"English\"}}";
+    }
+
+    private static String unnamedChannel(String name) {
+        return "{\"channelName\":\"" + name + "\",\"channelUrl\":\"http://streams.example/" + name.hashCode()
+                + ".m3u8\",\"channelGroup\":\"Local\"}";
+    }
+
+    private static String names(List<Channel> channels) {
+        List<String> names = new ArrayList<>();
+        for (Channel channel : channels) {
+            names.add(channel.getChannelName());
+        }
+        return String.join(",", names);
+    }
+
+    private static String ids(List<Channel> channels) {
+        List<String> ids = new ArrayList<>();
+        for (Channel channel : channels) {
+            ids.add(channel.getChannelId());
+        }
+        return String.join(",", ids);
+    }
+
+    /**
+     * How one channel list request was answered
+     */
+    private static final class Answer {
+        volatile List<Channel> channels;
+        volatile boolean notModified;
+        volatile String error;
+    }
+
+    /**
+     * Serves /api/v1/channels from queued replies and records each request's query
+     * and validators. Once given validators, it sends them with every reply and
+     * answers 304 without using up a reply when the request's ETag matches.
+     */
+    private static final class StandInServer {
+        private final HttpServer http;
+        private final Deque<String[]> replies = new ArrayDeque<>();
+        private final List<String> queries = new ArrayList<>();
+        private final List<String> ifNoneMatch = new ArrayList<>();
+        private final List<String> ifModifiedSince = new ArrayList<>();
+        private String etag;
+        private String lastModified;
+
+        StandInServer() throws IOException {
+            http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            http.createContext("/api/v1/channels", exchange -> {
+                String[] reply;
+                String currentEtag;
+                String currentLastModified;
+                synchronized (this) {
+                    String validator = exchange.getRequestHeaders().getFirst("If-None-Match");
+                    queries.add(exchange.getRequestURI().getQuery());
+                    ifNoneMatch.add(validator);
+                    ifModifiedSince.add(exchange.getRequestHeaders().getFirst("If-Modified-Since"));
+                    currentEtag = etag;
+                    currentLastModified = lastModified;
+                    reply = validator != null && validator.equals(etag) ? null : replies.poll();
+                }
+                if (currentEtag != null) {
+                    exchange.getResponseHeaders().set("ETag", currentEtag);
+                }
+                if (currentLastModified != null) {
+                    exchange.getResponseHeaders().set("Last-Modified", currentLastModified);
+                }
+                if (reply == null && currentEtag != null) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                if (reply == null) {
+                    reply = new String[]{"500", "{\"success\":false}"};
+                }
+                byte[] body = reply[1].getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(Integer.parseInt(reply[0]), body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            http.start();
+        }
+
+        String baseUrl() {
+            return "http://127.0.0.1:" + http.getAddress().getPort();
+        }
+
+        synchronized void reply(int code, String body) {
+            replies.add(new String[]{String.valueOf(code), body});
+        }
+
+        synchronized void validators(String etag, String lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        synchronized List<String> queries() {
+            return new ArrayList<>(queries);
+        }
+
+        synchronized List<String> ifNoneMatch() {
+            return new ArrayList<>(ifNoneMatch);
+        }
+
+        synchronized List<String> ifModifiedSince() {
+            return new ArrayList<>(ifModifiedSince);
+        }
+
+        void stop() {
+            http.stop(0);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.cadnative.firevisioniptv.api;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.os.SystemClock;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Closed, open and half-open transitions of the per-host circuit breaker.
+ * The test clock is paused, so SystemClock.sleep moves it without waiting.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class CircuitBreakerTest {
+    private static final long COOL_DOWN_MS = 30000;
+
+    private static CircuitBreaker opened() {
+        CircuitBreaker breaker = new CircuitBreaker("tv.example");
+        for (int i = 0; i < 4; i++) {
+            breaker.recordFailure();
+        }
+        assertTrue(breaker.recordFailure());
+        return breaker;
+    }
+
+    @Test
+    public void opensAfterFiveConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("tv.example");
+        for (int i = 0; i < 4; i++) {
+            assertFalse(breaker.recordFailure());
+            assertTrue(breaker.allowRequest());
+        }
+
+        assertTrue(breaker.recordFailure());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void successResetsTheFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker("tv.example");
+        for (int i = 0; i < 4; i++) {
+            breaker.recordFailure();
+        }
+        breaker.recordSuccess();
+
+        for (int i = 0; i < 4; i++) {
+            assertFalse(breaker.recordFailure());
+        }
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void letsOneProbeThroughAfterTheCoolDown() {
+        CircuitBreaker breaker = opened();
+
+        SystemClock.sleep(COOL_DOWN_MS / 2);
+        assertFalse(breaker.allowRequest());
+
+        SystemClock.sleep(COOL_DOWN_MS / 2);
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void successfulProbeClosesTheCircuit() {
+        CircuitBreaker breaker = opened();
+        SystemClock.sleep(COOL_DOWN_MS);
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordSuccess();
+
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void failedProbeOpensTheCircuitAgain() {
+        CircuitBreaker breaker = opened();
+        SystemClock.sleep(COOL_DOWN_MS);
+        assertTrue(breaker.allowRequest());
+
+        // A single failure is enough while half-open
+        assertTrue(breaker.recordFailure());
+        assertFalse(breaker.allowRequest());
+
+        SystemClock.sleep(COOL_DOWN_MS);
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void probeThatNeverReportsBackIsReplacedAfterTheCoolDown() {
+        CircuitBreaker breaker = opened();
+        SystemClock.sleep(COOL_DOWN_MS);
+        assertTrue(breaker.allowRequest());
+
+        SystemClock.sleep(COOL_DOWN_MS);
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+    }
+}
@@ -0,0 +1,67 @@
+package com.cadnative.firevisioniptv.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Which requests are retried, and how long to wait in between
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void onlyIdempotentMethodsAreRetried() {
+        assertTrue(RetryPolicy.isIdempotent(HttpRequest.get("http://tv.example/api/v1/channels")));
+        assertTrue(RetryPolicy.isIdempotent(HttpRequest.head("http://tv.example/app.apk")));
+        assertFalse(RetryPolicy.isIdempotent(HttpRequest.postJson("http://tv.example/api/v1/tv/pairing/request", "{}")));
+    }
+
+    @Test
+    public void onlyTransientStatusesAreRetryable() {
+        for (int code : new int[]{429, 500, 502, 503, 504}) {
+            assertTrue(String.valueOf(code), RetryPolicy.isRetryableStatus(code));
+        }
+        for (int code : new int[]{200, 304, 400, 401, 404, 410, 501}) {
+            assertFalse(String.valueOf(code), RetryPolicy.isRetryableStatus(code));
+        }
+    }
+
+    @Test
+    public void delayGrowsExponentiallyUpToTheCap() {
+        RetryPolicy policy = new RetryPolicy(10, 100, 1000);
+        long[] longest = new long[6];
+        for (int run = 0; run < 2000; run++) {
+            for (int retry = 1; retry <= 5; retry++) {
+                long delay = policy.delayBeforeRetry(retry, null);
+                assertTrue(delay >= 0);
+                longest[retry] = Math.max(longest[retry], delay);
+            }
+        }
+
+        // Full jitter stays within 100, 200, 400, 800 and then the 1000 cap
+        assertTrue(longest[1] <= 100 && longest[1] > 50);
+        assertTrue(longest[2] <= 200 && longest[2] > 100);
+        assertTrue(longest[3] <= 400 && longest[3] > 200);
+        assertTrue(longest[4] <= 800 && longest[4] > 400);
+        assertTrue(longest[5] <= 1000 && longest[5] > 800);
+    }
+
+    @Test
+    public void retryAfterIsHonouredUpToTheCap() {
+        RetryPolicy policy = new RetryPolicy(3, 0, 8000);
+
+        assertEquals(2000, policy.delayBeforeRetry(1, "2"));
+        assertEquals(8000, policy.delayBeforeRetry(1, " 120 "));
+        // The HTTP-date form is ignored in favour of our own backoff
+        assertEquals(0, policy.delayBeforeRetry(1, "Wed, 21 Oct 2026 07:28:00 GMT"));
+    }
+
+    @Test
+    public void noneNeverRetries() {
+        assertEquals(1, RetryPolicy.NONE.maxAttempts);
+        assertEquals(0, RetryPolicy.NONE.delayBeforeRetry(1, null));
+        assertEquals(1, new RetryPolicy(0, 100, 1000).maxAttempts);
+    }
+}
@@ -0,0 +1,85 @@
+package com.cadnative.firevisioniptv.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Joining and completing coalesced in-flight calls
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void onlyTheFirstCallerStartsTheCall() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+
+        assertTrue(flights.join("channels", "home"));
+        assertFalse(flights.join("channels", "search"));
+        assertFalse(flights.join("channels", "favorites"));
+
+        assertEquals(Arrays.asList("home", "search", "favorites"), flights.complete("channels"));
+    }
+
+    @Test
+    public void completingEndsTheCall() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        flights.join("channels", "home");
+        flights.complete("channels");
+
+        assertEquals(Collections.emptyList(), flights.complete("channels"));
+        assertTrue(flights.join("channels", "home"));
+    }
+
+    @Test
+    public void keysAreIndependent() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+
+        assertTrue(flights.join("server-a", "home"));
+        assertTrue(flights.join("server-b", "home"));
+        assertEquals(Collections.singletonList("home"), flights.complete("server-a"));
+        assertFalse(flights.join("server-b", "search"));
+        assertEquals(Arrays.asList("home", "search"), flights.complete("server-b"));
+    }
+
+    @Test
+    public void concurrentCallersStartOneCallBetweenThem() throws Exception {
+        SingleFlight<String, Integer> flights = new SingleFlight<>();
+        int callers = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger starters = new AtomicInteger();
+        try {
+            for (int i = 0; i < callers; i++) {
+                int caller = i;
+                pool.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (flights.join("channels", caller)) {
+                        starters.incrementAndGet();
+                    }
+                });
+            }
+            start.countDown();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, starters.get());
+        assertEquals(callers, flights.complete("channels").size());
+    }
+}